@@ -0,0 +1,72 @@
+package com.moviebooking.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.moviebooking.dto.ApiResponse;
+import com.moviebooking.dto.booking.SeatAvailabilityResponse;
+import com.moviebooking.service.SeatLayout;
+import com.moviebooking.service.SeatMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+// Body of GET /bookings/seats/{showtimeId} in both formats, written with a mapper configured the
+// way Spring Boot configures the application's
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ApiResponseSerializationBenchmark {
+
+    @Param({"100", "500", "1000", "2000"})
+    private int totalSeats;
+
+    private ObjectWriter writer;
+
+    private ApiResponse<SeatAvailabilityResponse> fullResponse;
+
+    private ApiResponse<SeatAvailabilityResponse> compactResponse;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        writer = objectMapper.writerFor(objectMapper.getTypeFactory()
+                .constructParametricType(ApiResponse.class, SeatAvailabilityResponse.class));
+
+        SeatMap seatMap = new SeatMap(totalSeats);
+        for (int i = 0; i < totalSeats; i += 3) {
+            seatMap.mark(i);
+        }
+        long[] occupancy = seatMap.snapshot();
+        fullResponse = ApiResponse.success("Seat availability retrieved successfully",
+                new SeatAvailabilityResponse("showtime-1", totalSeats,
+                        seatMap.bookedSeats(occupancy), seatMap.availableSeats(occupancy)));
+        compactResponse = ApiResponse.success("Seat availability retrieved successfully",
+                SeatAvailabilityResponse.compact("showtime-1", totalSeats, SeatLayout.SEATS_PER_ROW,
+                        totalSeats - SeatMap.countBooked(occupancy), seatMap.encodeOccupancy(occupancy)));
+    }
+
+    @Benchmark
+    public byte[] serializeFull() throws JsonProcessingException {
+        return writer.writeValueAsBytes(fullResponse);
+    }
+
+    @Benchmark
+    public byte[] serializeCompact() throws JsonProcessingException {
+        return writer.writeValueAsBytes(compactResponse);
+    }
+}
@@ -0,0 +1,102 @@
+package com.moviebooking.benchmark;
+
+import com.moviebooking.service.IdGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+// IdGenerator under contention from 8 threads. The uniqueness benchmark records every id issued
+// in an iteration and fails the run if any value was handed out twice.
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class IdGeneratorBenchmark {
+
+    private static final int IDS_PER_THREAD = 500_000;
+
+    private IdGenerator idGenerator;
+
+    // Each thread's ids for the current iteration, checked together once all threads are done
+    private final Queue<Recorder> recorders = new ConcurrentLinkedQueue<>();
+
+    @Setup
+    public void setUp() {
+        idGenerator = new IdGenerator();
+        ReflectionTestUtils.setField(idGenerator, "configuredNodeId", 1L);
+        idGenerator.init();
+    }
+
+    @TearDown(Level.Iteration)
+    public void checkUnique() {
+        int total = 0;
+        for (Recorder recorder : recorders) {
+            total += recorder.count;
+        }
+        long[] all = new long[total];
+        int offset = 0;
+        for (Recorder recorder : recorders) {
+            System.arraycopy(recorder.ids, 0, all, offset, recorder.count);
+            offset += recorder.count;
+        }
+        recorders.clear();
+
+        Arrays.sort(all);
+        for (int i = 1; i < all.length; i++) {
+            if (all[i] == all[i - 1]) {
+                throw new IllegalStateException("Id " + all[i] + " was issued twice among " + all.length + " ids");
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Recorder {
+        private final long[] ids = new long[IDS_PER_THREAD];
+        private int count;
+
+        @Setup(Level.Iteration)
+        public void register(IdGeneratorBenchmark benchmark) {
+            count = 0;
+            benchmark.recorders.add(this);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public long nextId() {
+        return idGenerator.nextId();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public String nextBookingReference() {
+        return idGenerator.nextBookingReference();
+    }
+
+    // A fixed batch per thread and iteration, so the recorded ids fit in the preallocated arrays
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 3, batchSize = IDS_PER_THREAD)
+    @Measurement(iterations = 5, batchSize = IDS_PER_THREAD)
+    public void nextIdUnique(Recorder recorder) {
+        recorder.ids[recorder.count++] = idGenerator.nextId();
+    }
+}
@@ -0,0 +1,73 @@
+package com.moviebooking.benchmark;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.WriterException;
+import com.google.zxing.client.j2se.MatrixToImageWriter;
+import com.google.zxing.qrcode.QRCodeWriter;
+import com.moviebooking.service.QRCodeService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Ticket QR rendering for a realistic signed payload. The zxing writer path is what tickets were
+// rendered with before QRCodeRenderer and is kept as the baseline.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QRCodeBenchmark {
+
+    private QRCodeService qrCodeService;
+
+    private String payload;
+
+    @Setup
+    public void setUp() {
+        qrCodeService = new QRCodeService();
+        ReflectionTestUtils.setField(qrCodeService, "qrSecret", "benchmarkQrSecret12345678901234567890123456");
+        ReflectionTestUtils.setField(qrCodeService, "qrCacheSize", 1000);
+        qrCodeService.init();
+        payload = qrCodeService.createTicketPayload("653a1b2c3d4e5f6a7b8c9d0e", "653a1b2c3d4e5f6a7b8c9d0f",
+                List.of("C4", "C5", "C6", "C7"), LocalDateTime.now().plusDays(1));
+    }
+
+    @Benchmark
+    public String generateQRCodeBase64() throws WriterException {
+        return qrCodeService.generateQRCodeBase64(payload);
+    }
+
+    @Benchmark
+    public byte[] generateQRCodePng() throws WriterException {
+        return qrCodeService.generateQRCodePng(payload, 300, 300);
+    }
+
+    // Repeat views of the same ticket are answered from the LRU
+    @Benchmark
+    public byte[] getQRCodePngCached() throws WriterException {
+        return qrCodeService.getQRCodePng(payload);
+    }
+
+    @Benchmark
+    public byte[] zxingWriterBaseline() throws WriterException, IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        MatrixToImageWriter.writeToStream(new QRCodeWriter().encode(payload, BarcodeFormat.QR_CODE, 300, 300),
+                "PNG", outputStream);
+        return outputStream.toByteArray();
+    }
+}
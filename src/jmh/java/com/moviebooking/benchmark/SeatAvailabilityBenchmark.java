@@ -0,0 +1,93 @@
+package com.moviebooking.benchmark;
+
+import com.moviebooking.dto.booking.SeatAvailabilityResponse;
+import com.moviebooking.model.Booking;
+import com.moviebooking.model.Showtime;
+import com.moviebooking.repository.BookingRepository;
+import com.moviebooking.repository.ShowtimeRepository;
+import com.moviebooking.service.BookingService;
+import com.moviebooking.service.SeatInventoryService;
+import com.moviebooking.service.SeatLayout;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+// Seat-map reads as served to the booking page: the showtime's SeatMap is loaded once from the
+// stub repositories in setup, so each call is the steady-state in-memory path
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SeatAvailabilityBenchmark {
+
+    private static final String SHOWTIME_ID = "showtime-1";
+
+    @Param({"100", "500", "1000", "2000"})
+    private int totalSeats;
+
+    private BookingService bookingService;
+
+    @Setup
+    public void setUp() {
+        Showtime showtime = new Showtime();
+        showtime.setId(SHOWTIME_ID);
+        showtime.setTotalSeats(totalSeats);
+
+        // Every third seat is taken, in bookings of up to four seats
+        List<Booking> bookings = new ArrayList<>();
+        List<String> seats = SeatLayout.generateSeatNumbers(totalSeats);
+        List<String> bookingSeats = new ArrayList<>();
+        for (int i = 0; i < seats.size(); i += 3) {
+            bookingSeats.add(seats.get(i));
+            if (bookingSeats.size() == 4) {
+                bookings.add(new Booking(SHOWTIME_ID, "user", bookingSeats, 40.0));
+                bookingSeats = new ArrayList<>();
+            }
+        }
+        if (!bookingSeats.isEmpty()) {
+            bookings.add(new Booking(SHOWTIME_ID, "user", bookingSeats, 10.0 * bookingSeats.size()));
+        }
+
+        SeatInventoryService seatInventoryService = new SeatInventoryService();
+        ReflectionTestUtils.setField(seatInventoryService, "showtimeRepository", StubRepositories.stub(
+                ShowtimeRepository.class, Map.of("findById", args -> Optional.of(showtime))));
+        ReflectionTestUtils.setField(seatInventoryService, "bookingRepository", StubRepositories.stub(
+                BookingRepository.class, Map.of("findByShowtimeIdAndStatusIn", args -> bookings)));
+
+        bookingService = new BookingService();
+        ReflectionTestUtils.setField(bookingService, "seatInventoryService", seatInventoryService);
+        bookingService.getSeatAvailability(SHOWTIME_ID);
+    }
+
+    @Benchmark
+    public SeatAvailabilityResponse getSeatAvailability() {
+        return bookingService.getSeatAvailability(SHOWTIME_ID, false);
+    }
+
+    @Benchmark
+    public SeatAvailabilityResponse getSeatAvailabilityCompact() {
+        return bookingService.getSeatAvailability(SHOWTIME_ID, true);
+    }
+
+    @Benchmark
+    public List<String> generateSeatNumbers() {
+        return SeatLayout.generateSeatNumbers(totalSeats);
+    }
+}
@@ -0,0 +1,34 @@
+package com.moviebooking.benchmark;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.function.Function;
+
+// Repository interfaces answered from memory, so benchmarks measure our code and not Mongo.
+// Each stubbed method is looked up by name; anything else fails loudly rather than returning null.
+final class StubRepositories {
+
+    private StubRepositories() {}
+
+    static <R> R stub(Class<R> repositoryType, Map<String, Function<Object[], Object>> methods) {
+        Object proxy = Proxy.newProxyInstance(repositoryType.getClassLoader(), new Class<?>[]{repositoryType},
+                (self, method, args) -> {
+                    Function<Object[], Object> handler = methods.get(method.getName());
+                    if (handler != null) {
+                        return handler.apply(args);
+                    }
+                    switch (method.getName()) {
+                        case "toString":
+                            return "Stub" + repositoryType.getSimpleName();
+                        case "hashCode":
+                            return System.identityHashCode(self);
+                        case "equals":
+                            return self == args[0];
+                        default:
+                            throw new UnsupportedOperationException(
+                                    repositoryType.getSimpleName() + "." + method.getName() + " is not stubbed");
+                    }
+                });
+        return repositoryType.cast(proxy);
+    }
+}
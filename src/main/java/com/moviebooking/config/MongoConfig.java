@@ -7,6 +7,8 @@ import com.mongodb.client.MongoClients;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.MongoTransactionManager;
 import org.springframework.data.mongodb.config.AbstractMongoClientConfiguration;
 import org.springframework.lang.NonNull;
 
@@ -22,6 +24,18 @@ public class MongoConfig extends AbstractMongoClientConfiguration {
         return "movie_booking_system";
     }
 
+    @Override
+    protected boolean autoIndexCreation() {
+        // Create the indexes declared on the documents, e.g. the unique seat claim index
+        return true;
+    }
+
+    // Multi-document transactions, used by the payment outbox; needs a replica set such as Atlas
+    @Bean
+    public MongoTransactionManager transactionManager(MongoDatabaseFactory databaseFactory) {
+        return new MongoTransactionManager(databaseFactory);
+    }
+
     @Bean
     @Override
     @NonNull
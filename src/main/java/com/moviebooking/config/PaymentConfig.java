@@ -0,0 +1,35 @@
+package com.moviebooking.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+public class PaymentConfig {
+
+    @Value("${payment.worker-threads}")
+    private Integer workerThreads;
+
+    @Value("${payment.queue-capacity}")
+    private Integer queueCapacity;
+
+    // Bounded pool and queue for async payments: caps concurrency against the gateway and
+    // rejects new payments instead of queueing without limit during peaks
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolExecutor paymentExecutor() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "payment-worker-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return new ThreadPoolExecutor(workerThreads, workerThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+    }
+}
@@ -1,6 +1,7 @@
 package com.moviebooking.config;
 
 import com.moviebooking.security.JwtAuthenticationFilter;
+import jakarta.servlet.DispatcherType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -41,12 +42,14 @@ public class SecurityConfig {
                 .csrf(csrf -> csrf.disable())
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(authz -> authz
+                        // Async dispatches of already-authorized streaming responses (seat map SSE)
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         // Public endpoints
                         .requestMatchers("/auth/**", "/movies", "/movies/**", "/showtimes/**").permitAll()
                         // Admin endpoints
                         .requestMatchers("/admin/**").hasRole("ADMIN")
                         // User endpoints
-                        .requestMatchers("/bookings/**", "/profile/**", "/tickets/**").hasAnyRole("USER", "ADMIN")
+                        .requestMatchers("/bookings/**", "/profile/**", "/tickets/**", "/waiting-room/**").hasAnyRole("USER", "ADMIN")
                         // All other requests need authentication
                         .anyRequest().authenticated());
 
@@ -1,20 +1,28 @@
 package com.moviebooking.controller;
 
 import com.moviebooking.dto.ApiResponse;
+import com.moviebooking.dto.booking.BestAvailableRequest;
 import com.moviebooking.dto.booking.BookingRequest;
 import com.moviebooking.dto.booking.SeatAvailabilityResponse;
 import com.moviebooking.model.Booking;
 import com.moviebooking.model.User;
 import com.moviebooking.service.BookingService;
+import com.moviebooking.service.IdempotencyService;
+import com.moviebooking.service.SeatClaimRepairService;
+import com.moviebooking.service.SeatMapStreamService;
 import com.moviebooking.service.UserService;
+import com.moviebooking.service.WaitingRoomService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/bookings")
@@ -27,20 +35,70 @@ public class BookingController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private SeatMapStreamService seatMapStreamService;
+
+    @Autowired
+    private WaitingRoomService waitingRoomService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
     @GetMapping("/seats/{showtimeId}")
-    public ResponseEntity<ApiResponse<SeatAvailabilityResponse>> getSeatAvailability(@PathVariable String showtimeId) {
-        SeatAvailabilityResponse availability = bookingService.getSeatAvailability(showtimeId);
+    public ResponseEntity<ApiResponse<SeatAvailabilityResponse>> getSeatAvailability(
+            @PathVariable String showtimeId,
+            @RequestParam(required = false) String format) {
+        // format=compact returns a base64 occupancy bitmap instead of the seat lists
+        boolean compact = "compact".equalsIgnoreCase(format);
+        SeatAvailabilityResponse availability = bookingService.getSeatAvailability(showtimeId, compact);
         return ResponseEntity.ok(ApiResponse.success("Seat availability retrieved successfully", availability));
     }
 
+    @GetMapping(value = "/seats/{showtimeId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamSeatAvailability(@PathVariable String showtimeId) {
+        // Sends a compact "snapshot" event, then "delta" events with booked/released seats
+        return seatMapStreamService.subscribe(showtimeId);
+    }
+
+    @GetMapping("/seats/{showtimeId}/best-available")
+    public ResponseEntity<ApiResponse<List<String>>> findBestAvailableSeats(
+            @PathVariable String showtimeId,
+            @RequestParam int partySize) {
+        List<String> seats = bookingService.findBestAvailableSeats(showtimeId, partySize);
+        return ResponseEntity.ok(ApiResponse.success("Best available seats retrieved successfully", seats));
+    }
+
+    @PostMapping("/best-available")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<Booking>> bookBestAvailable(
+            @Valid @RequestBody BestAvailableRequest request,
+            @RequestHeader(value = "X-Admission-Token", required = false) String admissionToken,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            Authentication authentication) {
+        User user = userService.findByEmail(authentication.getName());
+        return idempotencyService.execute(idempotencyKey, "best-available:" + user.getId(), request, Booking.class, () -> {
+            Booking booking = waitingRoomService.withAdmission(request.getShowtimeId(), user.getId(), admissionToken, () ->
+                    waitingRoomService.withBookingPermit(() ->
+                            bookingService.bookBestAvailable(user.getId(), request.getShowtimeId(), request.getPartySize())));
+            return ResponseEntity.ok(ApiResponse.success("Booking created successfully", booking));
+        });
+    }
+
     @PostMapping
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
     public ResponseEntity<ApiResponse<Booking>> createBooking(
             @Valid @RequestBody BookingRequest request,
+            @RequestHeader(value = "X-Admission-Token", required = false) String admissionToken,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             Authentication authentication) {
         User user = userService.findByEmail(authentication.getName());
-        Booking booking = bookingService.createBooking(user.getId(), request.getShowtimeId(), request.getSeatNumbers());
-        return ResponseEntity.ok(ApiResponse.success("Booking created successfully", booking));
+        // A retried request with the same Idempotency-Key gets the original booking back
+        return idempotencyService.execute(idempotencyKey, "booking:" + user.getId(), request, Booking.class, () -> {
+            Booking booking = waitingRoomService.withAdmission(request.getShowtimeId(), user.getId(), admissionToken, () ->
+                    waitingRoomService.withBookingPermit(() ->
+                            bookingService.createBooking(user.getId(), request.getShowtimeId(), request.getSeatNumbers())));
+            return ResponseEntity.ok(ApiResponse.success("Booking created successfully", booking));
+        });
     }
 
     @GetMapping("/my-bookings")
@@ -78,6 +136,9 @@ class AdminBookingController {
     @Autowired
     private BookingService bookingService;
 
+    @Autowired
+    private SeatClaimRepairService seatClaimRepairService;
+
     @GetMapping
     public ResponseEntity<ApiResponse<List<Booking>>> getAllBookings() {
         List<Booking> bookings = bookingService.getAllBookings();
@@ -103,4 +164,17 @@ class AdminBookingController {
         List<Booking> bookings = bookingService.findByBookingReference(bookingReference);
         return ResponseEntity.ok(ApiResponse.success("Bookings found", bookings));
     }
+
+    @PostMapping("/claims/repair")
+    public ResponseEntity<ApiResponse<Long>> repairOrphanedClaims() {
+        long removed = seatClaimRepairService.repairOrphanedClaims();
+        return ResponseEntity.ok(ApiResponse.success("Orphaned seat claims removed", removed));
+    }
+
+    // Safe to rerun; reports bookings whose seats were already claimed by another booking
+    @PostMapping("/claims/backfill")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> backfillClaims() {
+        Map<String, Object> result = seatClaimRepairService.backfillClaims();
+        return ResponseEntity.ok(ApiResponse.success("Seat claims backfilled", result));
+    }
 }
@@ -59,10 +59,15 @@ public class MovieController {
     }
 
     @GetMapping("/{id}/showtimes")
-    public ResponseEntity<ApiResponse<List<Showtime>>> getMovieShowtimes(@PathVariable String id) {
+    public ResponseEntity<ApiResponse<List<Showtime>>> getMovieShowtimes(
+            @PathVariable String id,
+            @RequestParam(defaultValue = "false") boolean availableOnly) {
         // For now, show all active showtimes (including past ones for testing)
         // In production, you might want to use getUpcomingShowtimesByMovieId(id)
-        List<Showtime> showtimes = showtimeService.getShowtimesByMovieId(id);
+        // availableOnly=true drops sold-out showtimes using the indexed availableSeatCount
+        List<Showtime> showtimes = availableOnly
+                ? showtimeService.getAvailableShowtimesByMovieId(id)
+                : showtimeService.getShowtimesByMovieId(id);
         return ResponseEntity.ok(ApiResponse.success("Showtimes retrieved successfully", showtimes));
     }
 }
@@ -4,16 +4,24 @@ import com.moviebooking.dto.ApiResponse;
 import com.moviebooking.dto.payment.PaymentRequest;
 import com.moviebooking.dto.payment.PaymentResponse;
 import com.moviebooking.model.Payment;
+import com.moviebooking.model.SettlementReport;
+import com.moviebooking.service.IdempotencyService;
+import com.moviebooking.service.PaymentGatewayClient;
 import com.moviebooking.service.PaymentService;
+import com.moviebooking.service.SettlementService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/bookings")
@@ -23,13 +31,32 @@ public class PaymentController {
     @Autowired
     private PaymentService paymentService;
 
+    @Autowired
+    private IdempotencyService idempotencyService;
+
     @PostMapping("/{bookingId}/pay")
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
     public ResponseEntity<ApiResponse<PaymentResponse>> processPayment(
             @PathVariable String bookingId,
-            @Valid @RequestBody PaymentRequest paymentRequest) {
-        PaymentResponse paymentResponse = paymentService.processPayment(bookingId, paymentRequest);
-        return ResponseEntity.ok(ApiResponse.success("Payment processed successfully", paymentResponse));
+            @Valid @RequestBody PaymentRequest paymentRequest,
+            @RequestParam(defaultValue = "false") boolean async,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            Authentication authentication,
+            HttpServletRequest request) {
+        String userKey = authentication.getName();
+        // The original client, resolved from X-Forwarded-For through the trusted proxies
+        String clientIp = request.getRemoteAddr();
+        // A retried request with the same Idempotency-Key gets the original payment result back
+        return idempotencyService.execute(idempotencyKey, "payment:" + bookingId, paymentRequest, PaymentResponse.class, () -> {
+            if (async) {
+                // 202 with the PENDING payment; poll GET /bookings/{bookingId}/payment for the result
+                PaymentResponse paymentResponse = paymentService.submitPayment(bookingId, paymentRequest, userKey, clientIp);
+                return ResponseEntity.status(HttpStatus.ACCEPTED)
+                        .body(ApiResponse.success("Payment accepted for processing", paymentResponse));
+            }
+            PaymentResponse paymentResponse = paymentService.processPayment(bookingId, paymentRequest, userKey, clientIp);
+            return ResponseEntity.ok(ApiResponse.success("Payment processed successfully", paymentResponse));
+        });
     }
 
     @GetMapping("/{bookingId}/payment")
@@ -49,6 +76,9 @@ class AdminPaymentController {
     @Autowired
     private PaymentService paymentService;
 
+    @Autowired
+    private SettlementService settlementService;
+
     @GetMapping
     public ResponseEntity<ApiResponse<List<Payment>>> getAllPayments() {
         List<Payment> payments = paymentService.getAllPayments();
@@ -74,4 +104,41 @@ class AdminPaymentController {
         List<Payment> payments = paymentService.getPaymentsByDateRange(start, end);
         return ResponseEntity.ok(ApiResponse.success("Payments retrieved successfully", payments));
     }
+
+    // Reconciliation runs in the background; poll the returned report for progress
+    @PostMapping("/settlements")
+    public ResponseEntity<ApiResponse<SettlementReport>> startSettlement(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end) {
+        SettlementReport report = settlementService.startSettlement(start, end);
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(ApiResponse.success("Settlement run started", report));
+    }
+
+    @GetMapping("/settlements")
+    public ResponseEntity<ApiResponse<List<SettlementReport>>> getRecentSettlements() {
+        List<SettlementReport> reports = settlementService.getRecentReports();
+        return ResponseEntity.ok(ApiResponse.success("Settlement reports retrieved successfully", reports));
+    }
+
+    @GetMapping("/settlements/{id}")
+    public ResponseEntity<ApiResponse<SettlementReport>> getSettlement(@PathVariable String id) {
+        SettlementReport report = settlementService.getReport(id);
+        return ResponseEntity.ok(ApiResponse.success("Settlement report retrieved successfully", report));
+    }
+}
+
+@RestController
+@RequestMapping("/admin/payment-gateway")
+@CrossOrigin(origins = "*", maxAge = 3600)
+class AdminPaymentGatewayController {
+
+    @Autowired
+    private PaymentGatewayClient paymentGatewayClient;
+
+    @GetMapping
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getGatewayStats() {
+        return ResponseEntity.ok(ApiResponse.success("Payment gateway stats retrieved successfully",
+                paymentGatewayClient.getStats()));
+    }
 }
@@ -3,9 +3,12 @@ package com.moviebooking.controller;
 import com.moviebooking.dto.ApiResponse;
 import com.moviebooking.dto.ShowtimeWithMovieInfo;
 import com.moviebooking.model.Showtime;
+import com.moviebooking.model.ShowtimeCancellation;
+import com.moviebooking.service.ShowtimeCancellationService;
 import com.moviebooking.service.ShowtimeService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
@@ -21,6 +24,9 @@ public class ShowtimeController {
     @Autowired
     private ShowtimeService showtimeService;
 
+    @Autowired
+    private ShowtimeCancellationService showtimeCancellationService;
+
     @GetMapping
     public ResponseEntity<ApiResponse<List<ShowtimeWithMovieInfo>>> getAllShowtimes() {
         List<ShowtimeWithMovieInfo> showtimes = showtimeService.getAllShowtimesWithMovieInfo();
@@ -64,4 +70,21 @@ public class ShowtimeController {
         Showtime showtime = showtimeService.activateShowtime(id);
         return ResponseEntity.ok(ApiResponse.success("Showtime activated successfully", showtime));
     }
+
+    // Cancels all live bookings, refunds their payments and invalidates their tickets in the
+    // background; poll the cancellation for progress
+    @PostMapping("/{id}/cancel")
+    public ResponseEntity<ApiResponse<ShowtimeCancellation>> cancelShowtime(
+            @PathVariable String id,
+            @RequestParam(required = false) String reason) {
+        ShowtimeCancellation cancellation = showtimeCancellationService.startCancellation(id, reason);
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(ApiResponse.success("Showtime cancellation started", cancellation));
+    }
+
+    @GetMapping("/{id}/cancellation")
+    public ResponseEntity<ApiResponse<ShowtimeCancellation>> getCancellation(@PathVariable String id) {
+        ShowtimeCancellation cancellation = showtimeCancellationService.getCancellation(id);
+        return ResponseEntity.ok(ApiResponse.success("Showtime cancellation retrieved successfully", cancellation));
+    }
 }
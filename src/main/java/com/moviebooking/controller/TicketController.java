@@ -1,12 +1,21 @@
 package com.moviebooking.controller;
 
+import com.google.zxing.WriterException;
 import com.moviebooking.dto.ApiResponse;
+import com.moviebooking.dto.ticket.TicketValidationResponse;
 import com.moviebooking.model.Ticket;
 import com.moviebooking.service.TicketService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/tickets")
@@ -18,25 +27,50 @@ public class TicketController {
 
     @GetMapping("/booking/{bookingId}")
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
-    public ResponseEntity<ApiResponse<Ticket>> getTicketByBookingId(@PathVariable String bookingId) {
-        Ticket ticket = ticketService.getTicketByBookingId(bookingId);
+    public ResponseEntity<ApiResponse<Ticket>> getTicketByBookingId(@PathVariable String bookingId)
+            throws WriterException {
+        Ticket ticket = ticketService.withQrCodeImage(ticketService.getTicketByBookingId(bookingId));
         return ResponseEntity.ok(ApiResponse.success("Ticket retrieved successfully", ticket));
     }
 
     @GetMapping("/{id}")
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
-    public ResponseEntity<ApiResponse<Ticket>> getTicketById(@PathVariable String id) {
-        Ticket ticket = ticketService.getTicketById(id);
+    public ResponseEntity<ApiResponse<Ticket>> getTicketById(@PathVariable String id) throws WriterException {
+        Ticket ticket = ticketService.withQrCodeImage(ticketService.getTicketById(id));
         return ResponseEntity.ok(ApiResponse.success("Ticket retrieved successfully", ticket));
     }
 
+    // Raw PNG for the ticket's QR code. The payload never changes, so clients and proxies can keep it.
+    @GetMapping(value = "/{id}/qr.png", produces = MediaType.IMAGE_PNG_VALUE)
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public ResponseEntity<byte[]> getTicketQrCode(@PathVariable String id, WebRequest request)
+            throws WriterException {
+        Ticket ticket = ticketService.getTicketById(id);
+        String eTag = "\"" + ticket.getId() + "\"";
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.IMAGE_PNG)
+                .cacheControl(CacheControl.maxAge(1, TimeUnit.DAYS).cachePrivate())
+                .eTag(eTag)
+                .body(ticketService.getQrCodePng(ticket));
+    }
+
     @PostMapping("/validate")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<ApiResponse<Ticket>> validateTicket(@RequestParam String qrCodeData) {
-        Ticket ticket = ticketService.validateTicket(qrCodeData);
+    public ResponseEntity<ApiResponse<TicketValidationResponse>> validateTicket(@RequestParam String qrCodeData) {
+        TicketValidationResponse ticket = ticketService.validateTicket(qrCodeData);
         return ResponseEntity.ok(ApiResponse.success("Ticket validated successfully", ticket));
     }
 
+    @PostMapping("/admit")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<Ticket>> admitTicket(@RequestParam String qrCodeData) {
+        Ticket ticket = ticketService.admitTicket(qrCodeData);
+        return ResponseEntity.ok(ApiResponse.success("Ticket admitted successfully", ticket));
+    }
+
     @PutMapping("/{id}/invalidate")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<ApiResponse<String>> invalidateTicket(@PathVariable String id) {
@@ -54,6 +88,32 @@ class AdminTicketController {
     @Autowired
     private TicketService ticketService;
 
+    // Loads the showtime's valid tickets into memory ahead of the scheduled warm-up
+    @PostMapping("/warmup/{showtimeId}")
+    public ResponseEntity<ApiResponse<Integer>> warmUpShowtime(@PathVariable String showtimeId) {
+        int tickets = ticketService.warmUpShowtime(showtimeId);
+        return ResponseEntity.ok(ApiResponse.success("Showtime tickets loaded for scanning", tickets));
+    }
+
+    @PostMapping("/purge-qr-images")
+    public ResponseEntity<ApiResponse<Long>> purgeStoredQrCodeImages() {
+        long purged = ticketService.purgeStoredQrCodeImages();
+        return ResponseEntity.ok(ApiResponse.success("Stored QR images removed", purged));
+    }
+
+    // Live admitted-seat counts for every screen this node is scanning
+    @GetMapping("/admissions")
+    public ResponseEntity<ApiResponse<List<Map<String, Object>>>> getAllAdmissionCounts() {
+        List<Map<String, Object>> counts = ticketService.getAllAdmissionCounts();
+        return ResponseEntity.ok(ApiResponse.success("Admission counts retrieved successfully", counts));
+    }
+
+    @GetMapping("/admissions/{showtimeId}")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getAdmissionCounts(@PathVariable String showtimeId) {
+        Map<String, Object> counts = ticketService.getAdmissionCounts(showtimeId);
+        return ResponseEntity.ok(ApiResponse.success("Admission counts retrieved successfully", counts));
+    }
+
     @PostMapping("/generate/{bookingId}")
     public ResponseEntity<ApiResponse<Ticket>> generateTicket(@PathVariable String bookingId) {
         try {
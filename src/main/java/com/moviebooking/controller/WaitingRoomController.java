@@ -0,0 +1,76 @@
+package com.moviebooking.controller;
+
+import com.moviebooking.dto.ApiResponse;
+import com.moviebooking.dto.waitingroom.WaitingRoomStatus;
+import com.moviebooking.model.User;
+import com.moviebooking.model.WaitingRoom;
+import com.moviebooking.service.UserService;
+import com.moviebooking.service.WaitingRoomService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/waiting-room")
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class WaitingRoomController {
+
+    @Autowired
+    private WaitingRoomService waitingRoomService;
+
+    @Autowired
+    private UserService userService;
+
+    @PostMapping("/{showtimeId}/join")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<WaitingRoomStatus>> join(
+            @PathVariable String showtimeId,
+            Authentication authentication) {
+        User user = userService.findByEmail(authentication.getName());
+        WaitingRoomStatus status = waitingRoomService.join(showtimeId, user.getId());
+        return ResponseEntity.ok(ApiResponse.success("Joined waiting room", status));
+    }
+
+    @GetMapping("/{showtimeId}/status")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<WaitingRoomStatus>> getStatus(
+            @PathVariable String showtimeId,
+            @RequestParam String queueTicket,
+            Authentication authentication) {
+        User user = userService.findByEmail(authentication.getName());
+        WaitingRoomStatus status = waitingRoomService.getStatus(showtimeId, user.getId(), queueTicket);
+        return ResponseEntity.ok(ApiResponse.success("Waiting room status retrieved successfully", status));
+    }
+}
+
+@RestController
+@RequestMapping("/admin/waiting-room")
+@CrossOrigin(origins = "*", maxAge = 3600)
+@PreAuthorize("hasRole('ADMIN')")
+class AdminWaitingRoomController {
+
+    @Autowired
+    private WaitingRoomService waitingRoomService;
+
+    @PostMapping("/{showtimeId}")
+    public ResponseEntity<ApiResponse<WaitingRoom>> openRoom(
+            @PathVariable String showtimeId,
+            @RequestParam double admitRate) {
+        WaitingRoom room = waitingRoomService.openRoom(showtimeId, admitRate);
+        return ResponseEntity.ok(ApiResponse.success("Waiting room opened successfully", room));
+    }
+
+    @GetMapping("/{showtimeId}")
+    public ResponseEntity<ApiResponse<WaitingRoom>> getRoom(@PathVariable String showtimeId) {
+        WaitingRoom room = waitingRoomService.getRoom(showtimeId);
+        return ResponseEntity.ok(ApiResponse.success("Waiting room retrieved successfully", room));
+    }
+
+    @DeleteMapping("/{showtimeId}")
+    public ResponseEntity<ApiResponse<String>> closeRoom(@PathVariable String showtimeId) {
+        waitingRoomService.closeRoom(showtimeId);
+        return ResponseEntity.ok(ApiResponse.success("Waiting room closed successfully"));
+    }
+}
@@ -0,0 +1,42 @@
+package com.moviebooking.dto.booking;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+
+public class BestAvailableRequest {
+
+    @NotBlank(message = "Showtime ID is required")
+    private String showtimeId;
+
+    @NotNull(message = "Party size is required")
+    @Min(value = 1, message = "Party size must be at least 1")
+    @Max(value = 10, message = "Party size must be at most 10")
+    private Integer partySize;
+
+    // Constructors
+    public BestAvailableRequest() {}
+
+    public BestAvailableRequest(String showtimeId, Integer partySize) {
+        this.showtimeId = showtimeId;
+        this.partySize = partySize;
+    }
+
+    // Getters and Setters
+    public String getShowtimeId() {
+        return showtimeId;
+    }
+
+    public void setShowtimeId(String showtimeId) {
+        this.showtimeId = showtimeId;
+    }
+
+    public Integer getPartySize() {
+        return partySize;
+    }
+
+    public void setPartySize(Integer partySize) {
+        this.partySize = partySize;
+    }
+}
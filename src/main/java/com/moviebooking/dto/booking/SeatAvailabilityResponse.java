@@ -1,7 +1,10 @@
 package com.moviebooking.dto.booking;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.util.List;
 
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class SeatAvailabilityResponse {
 
     private String showtimeId;
@@ -9,6 +12,13 @@ public class SeatAvailabilityResponse {
     private List<String> bookedSeats;
     private List<String> availableSeats;
 
+    // Compact format: seat i (row-major, seatsPerRow per row) is booked when bit (i % 8)
+    // of byte (i / 8) of the base64-decoded occupancy is set
+    private Integer seatsPerRow;
+    private Integer rows;
+    private Integer availableCount;
+    private String occupancy;
+
     // Constructors
     public SeatAvailabilityResponse() {}
 
@@ -19,6 +29,18 @@ public class SeatAvailabilityResponse {
         this.availableSeats = availableSeats;
     }
 
+    public static SeatAvailabilityResponse compact(String showtimeId, int totalSeats, int seatsPerRow,
+                                                   int availableCount, String occupancy) {
+        SeatAvailabilityResponse response = new SeatAvailabilityResponse();
+        response.showtimeId = showtimeId;
+        response.totalSeats = totalSeats;
+        response.seatsPerRow = seatsPerRow;
+        response.rows = (totalSeats + seatsPerRow - 1) / seatsPerRow;
+        response.availableCount = availableCount;
+        response.occupancy = occupancy;
+        return response;
+    }
+
     // Getters and Setters
     public String getShowtimeId() {
         return showtimeId;
@@ -51,4 +73,36 @@ public class SeatAvailabilityResponse {
     public void setAvailableSeats(List<String> availableSeats) {
         this.availableSeats = availableSeats;
     }
+
+    public Integer getSeatsPerRow() {
+        return seatsPerRow;
+    }
+
+    public void setSeatsPerRow(Integer seatsPerRow) {
+        this.seatsPerRow = seatsPerRow;
+    }
+
+    public Integer getRows() {
+        return rows;
+    }
+
+    public void setRows(Integer rows) {
+        this.rows = rows;
+    }
+
+    public Integer getAvailableCount() {
+        return availableCount;
+    }
+
+    public void setAvailableCount(Integer availableCount) {
+        this.availableCount = availableCount;
+    }
+
+    public String getOccupancy() {
+        return occupancy;
+    }
+
+    public void setOccupancy(String occupancy) {
+        this.occupancy = occupancy;
+    }
 }
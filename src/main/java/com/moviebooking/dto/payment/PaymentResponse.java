@@ -14,6 +14,8 @@ public class PaymentResponse {
     private String cardNumber;
     private LocalDateTime processedAt;
     private String failureReason;
+    private Integer attempts;
+    private LocalDateTime nextAttemptAt;
 
     // Constructors
     public PaymentResponse() {}
@@ -27,6 +29,8 @@ public class PaymentResponse {
         this.cardNumber = payment.getCardNumber();
         this.processedAt = payment.getProcessedAt();
         this.failureReason = payment.getFailureReason();
+        this.attempts = payment.getAttempts();
+        this.nextAttemptAt = payment.getNextAttemptAt();
     }
 
     // Getters and Setters
@@ -93,4 +97,20 @@ public class PaymentResponse {
     public void setFailureReason(String failureReason) {
         this.failureReason = failureReason;
     }
+
+    public Integer getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+
+    public LocalDateTime getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
 }
@@ -0,0 +1,64 @@
+package com.moviebooking.dto.ticket;
+
+import com.moviebooking.model.Ticket;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// What a gate learns from a valid ticket. Holds only what the signed QR payload carries, so a
+// ticket answered from the warm index and one read from the database look the same.
+public class TicketValidationResponse {
+
+    private String ticketId;
+    private String showtimeId;
+    private List<String> seatNumbers;
+    private LocalDateTime expiresAt;
+
+    // Constructors
+    public TicketValidationResponse() {}
+
+    public TicketValidationResponse(String ticketId, String showtimeId, List<String> seatNumbers,
+                                    LocalDateTime expiresAt) {
+        this.ticketId = ticketId;
+        this.showtimeId = showtimeId;
+        this.seatNumbers = seatNumbers;
+        this.expiresAt = expiresAt;
+    }
+
+    public TicketValidationResponse(Ticket ticket) {
+        this(ticket.getId(), ticket.getShowtimeId(), ticket.getSeatNumbers(), ticket.getExpiresAt());
+    }
+
+    // Getters and Setters
+    public String getTicketId() {
+        return ticketId;
+    }
+
+    public void setTicketId(String ticketId) {
+        this.ticketId = ticketId;
+    }
+
+    public String getShowtimeId() {
+        return showtimeId;
+    }
+
+    public void setShowtimeId(String showtimeId) {
+        this.showtimeId = showtimeId;
+    }
+
+    public List<String> getSeatNumbers() {
+        return seatNumbers;
+    }
+
+    public void setSeatNumbers(List<String> seatNumbers) {
+        this.seatNumbers = seatNumbers;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
@@ -0,0 +1,83 @@
+package com.moviebooking.dto.waitingroom;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class WaitingRoomStatus {
+
+    private String showtimeId;
+    private boolean admitted;
+    private String queueTicket;
+    private Long position;
+    private Long estimatedWaitSeconds;
+    private String admissionToken;
+
+    // Constructors
+    public WaitingRoomStatus() {}
+
+    public static WaitingRoomStatus waiting(String showtimeId, String queueTicket, long position, long estimatedWaitSeconds) {
+        WaitingRoomStatus status = new WaitingRoomStatus();
+        status.showtimeId = showtimeId;
+        status.queueTicket = queueTicket;
+        status.position = position;
+        status.estimatedWaitSeconds = estimatedWaitSeconds;
+        return status;
+    }
+
+    public static WaitingRoomStatus admitted(String showtimeId, String admissionToken) {
+        WaitingRoomStatus status = new WaitingRoomStatus();
+        status.showtimeId = showtimeId;
+        status.admitted = true;
+        status.admissionToken = admissionToken;
+        return status;
+    }
+
+    // Getters and Setters
+    public String getShowtimeId() {
+        return showtimeId;
+    }
+
+    public void setShowtimeId(String showtimeId) {
+        this.showtimeId = showtimeId;
+    }
+
+    public boolean isAdmitted() {
+        return admitted;
+    }
+
+    public void setAdmitted(boolean admitted) {
+        this.admitted = admitted;
+    }
+
+    public String getQueueTicket() {
+        return queueTicket;
+    }
+
+    public void setQueueTicket(String queueTicket) {
+        this.queueTicket = queueTicket;
+    }
+
+    public Long getPosition() {
+        return position;
+    }
+
+    public void setPosition(Long position) {
+        this.position = position;
+    }
+
+    public Long getEstimatedWaitSeconds() {
+        return estimatedWaitSeconds;
+    }
+
+    public void setEstimatedWaitSeconds(Long estimatedWaitSeconds) {
+        this.estimatedWaitSeconds = estimatedWaitSeconds;
+    }
+
+    public String getAdmissionToken() {
+        return admissionToken;
+    }
+
+    public void setAdmissionToken(String admissionToken) {
+        this.admissionToken = admissionToken;
+    }
+}
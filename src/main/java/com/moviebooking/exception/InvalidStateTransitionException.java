@@ -0,0 +1,8 @@
+package com.moviebooking.exception;
+
+public class InvalidStateTransitionException extends RuntimeException {
+
+    public InvalidStateTransitionException(String message) {
+        super(message);
+    }
+}
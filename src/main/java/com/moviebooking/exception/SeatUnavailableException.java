@@ -0,0 +1,18 @@
+package com.moviebooking.exception;
+
+import java.util.List;
+
+public class SeatUnavailableException extends RuntimeException {
+
+    private final List<String> seatNumbers;
+
+    public SeatUnavailableException(List<String> seatNumbers) {
+        super("Seat" + (seatNumbers.size() > 1 ? "s " : " ") + String.join(", ", seatNumbers)
+                + (seatNumbers.size() > 1 ? " are" : " is") + " already taken");
+        this.seatNumbers = seatNumbers;
+    }
+
+    public List<String> getSeatNumbers() {
+        return seatNumbers;
+    }
+}
@@ -1,14 +1,23 @@
 package com.moviebooking.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Document(collection = "bookings")
+@CompoundIndexes({
+        @CompoundIndex(name = "status_hold_expiry", def = "{'status': 1, 'holdExpiresAt': 1}"),
+        @CompoundIndex(name = "showtime_updated", def = "{'showtimeId': 1, 'updatedAt': 1}")
+})
 public class Booking extends BaseEntity {
 
     @NotBlank(message = "Showtime ID is required")
@@ -26,8 +35,14 @@ public class Booking extends BaseEntity {
 
     private BookingStatus status = BookingStatus.PENDING_PAYMENT;
 
+    @Indexed(unique = true, sparse = true)
     private String bookingReference;
 
+    private LocalDateTime holdExpiresAt; // Seats are released if payment has not completed by then
+
+    @Indexed(sparse = true)
+    private Boolean releasePending; // Set while an expired hold still has seat claims to release
+
     // Constructors
     public Booking() {}
 
@@ -36,7 +51,6 @@ public class Booking extends BaseEntity {
         this.userId = userId;
         this.bookedSeatNumbers = bookedSeatNumbers;
         this.totalPrice = totalPrice;
-        this.bookingReference = generateBookingReference();
     }
 
     // Getters and Setters
@@ -88,14 +102,50 @@ public class Booking extends BaseEntity {
         this.bookingReference = bookingReference;
     }
 
-    private String generateBookingReference() {
-        return "BK" + System.currentTimeMillis();
+    public LocalDateTime getHoldExpiresAt() {
+        return holdExpiresAt;
+    }
+
+    public void setHoldExpiresAt(LocalDateTime holdExpiresAt) {
+        this.holdExpiresAt = holdExpiresAt;
+    }
+
+    public Boolean getReleasePending() {
+        return releasePending;
+    }
+
+    public void setReleasePending(Boolean releasePending) {
+        this.releasePending = releasePending;
+    }
+
+    // Derived, so kept out of API responses
+    @JsonIgnore
+    public boolean isHoldExpired() {
+        return status == BookingStatus.PENDING_PAYMENT
+                && holdExpiresAt != null
+                && holdExpiresAt.isBefore(LocalDateTime.now());
     }
 
     public enum BookingStatus {
         PENDING_PAYMENT,
         CONFIRMED,
         CANCELLED,
-        EXPIRED
+        EXPIRED;
+
+        // Transition table. BookingService applies each transition as a conditional update on
+        // the current status, so a transition that loses a race fails instead of overwriting.
+        // EXPIRED -> CONFIRMED covers a payment that settles after the hold lapsed.
+        public boolean canTransitionTo(BookingStatus next) {
+            switch (this) {
+                case PENDING_PAYMENT:
+                    return next == CONFIRMED || next == CANCELLED || next == EXPIRED;
+                case CONFIRMED:
+                    return next == CANCELLED;
+                case EXPIRED:
+                    return next == CONFIRMED;
+                default:
+                    return false;
+            }
+        }
     }
 }
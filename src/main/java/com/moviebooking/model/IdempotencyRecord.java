@@ -0,0 +1,110 @@
+package com.moviebooking.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+// Stored outcome of a request sent with an Idempotency-Key; Mongo drops it after a day
+@Document(collection = "idempotency_keys")
+public class IdempotencyRecord {
+
+    @Id
+    private String id; // scope + ":" + key
+
+    private String requestHash;
+
+    private Status status = Status.IN_PROGRESS;
+
+    private Integer httpStatus;
+
+    private String responseBody;
+
+    // The request holding an IN_PROGRESS record; once lockedUntil passes, a retry may take it over
+    private String lockOwner;
+
+    private LocalDateTime lockedUntil;
+
+    @Indexed(expireAfter = "24h")
+    private LocalDateTime createdAt;
+
+    // Constructors
+    public IdempotencyRecord() {}
+
+    public IdempotencyRecord(String id, String requestHash) {
+        this.id = id;
+        this.requestHash = requestHash;
+        this.createdAt = LocalDateTime.now();
+    }
+
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getRequestHash() {
+        return requestHash;
+    }
+
+    public void setRequestHash(String requestHash) {
+        this.requestHash = requestHash;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public Integer getHttpStatus() {
+        return httpStatus;
+    }
+
+    public void setHttpStatus(Integer httpStatus) {
+        this.httpStatus = httpStatus;
+    }
+
+    public String getResponseBody() {
+        return responseBody;
+    }
+
+    public void setResponseBody(String responseBody) {
+        this.responseBody = responseBody;
+    }
+
+    public String getLockOwner() {
+        return lockOwner;
+    }
+
+    public void setLockOwner(String lockOwner) {
+        this.lockOwner = lockOwner;
+    }
+
+    public LocalDateTime getLockedUntil() {
+        return lockedUntil;
+    }
+
+    public void setLockedUntil(LocalDateTime lockedUntil) {
+        this.lockedUntil = lockedUntil;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public enum Status {
+        IN_PROGRESS,
+        COMPLETED
+    }
+}
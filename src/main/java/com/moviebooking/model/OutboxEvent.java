@@ -0,0 +1,116 @@
+package com.moviebooking.model;
+
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+// Side effect recorded in the same transaction as the change that causes it, then delivered
+// at least once by OutboxService. Handlers must therefore be idempotent.
+@Document(collection = "outbox_events")
+@CompoundIndex(name = "status_next_attempt", def = "{'status': 1, 'nextAttemptAt': 1}")
+public class OutboxEvent extends BaseEntity {
+
+    public enum Type {
+        BOOKING_CONFIRMATION, TICKET_ISSUANCE, PAYMENT_REFUND
+    }
+
+    public enum Status {
+        PENDING, DISPATCHED, FAILED
+    }
+
+    private Type type;
+
+    private String aggregateId;
+
+    private Status status = Status.PENDING;
+
+    private int attempts;
+
+    // Also serves as the claim lease while a dispatcher is working on the event
+    private LocalDateTime nextAttemptAt;
+
+    private String claimedBy;
+
+    private String lastError;
+
+    // Delivered events are dropped after a week; pending ones have no value here and are kept
+    @Indexed(expireAfter = "7d")
+    private LocalDateTime dispatchedAt;
+
+    // Constructors
+    public OutboxEvent() {}
+
+    public OutboxEvent(Type type, String aggregateId, LocalDateTime now) {
+        this.type = type;
+        this.aggregateId = aggregateId;
+        this.nextAttemptAt = now;
+        setCreatedAt(now);
+    }
+
+    // Getters and Setters
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public String getAggregateId() {
+        return aggregateId;
+    }
+
+    public void setAggregateId(String aggregateId) {
+        this.aggregateId = aggregateId;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public LocalDateTime getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public String getClaimedBy() {
+        return claimedBy;
+    }
+
+    public void setClaimedBy(String claimedBy) {
+        this.claimedBy = claimedBy;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public LocalDateTime getDispatchedAt() {
+        return dispatchedAt;
+    }
+
+    public void setDispatchedAt(LocalDateTime dispatchedAt) {
+        this.dispatchedAt = dispatchedAt;
+    }
+}
@@ -1,5 +1,8 @@
 package com.moviebooking.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -8,9 +11,11 @@ import jakarta.validation.constraints.Positive;
 import java.time.LocalDateTime;
 
 @Document(collection = "payments")
+@CompoundIndex(name = "status_next_attempt", def = "{'status': 1, 'nextAttemptAt': 1}")
 public class Payment extends BaseEntity {
 
     @NotBlank(message = "Booking ID is required")
+    @Indexed(unique = true)
     private String bookingId;
 
     @NotNull(message = "Amount is required")
@@ -25,10 +30,20 @@ public class Payment extends BaseEntity {
 
     private String cardHolderName;
 
+    @Indexed
     private LocalDateTime processedAt;
 
     private String failureReason;
 
+    // Gateway token for the card, so retries can charge again without the card number
+    @JsonIgnore
+    private String cardToken;
+
+    private int attempts;
+
+    // When the retry worker should next try a RETRYING payment
+    private LocalDateTime nextAttemptAt;
+
     // Constructors
     public Payment() {}
 
@@ -37,7 +52,6 @@ public class Payment extends BaseEntity {
         this.amount = amount;
         this.cardNumber = maskCardNumber(cardNumber);
         this.cardHolderName = cardHolderName;
-        this.transactionId = generateTransactionId();
         this.processedAt = LocalDateTime.now();
     }
 
@@ -106,6 +120,30 @@ public class Payment extends BaseEntity {
         this.failureReason = failureReason;
     }
 
+    public String getCardToken() {
+        return cardToken;
+    }
+
+    public void setCardToken(String cardToken) {
+        this.cardToken = cardToken;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public LocalDateTime getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
     private String maskCardNumber(String cardNumber) {
         if (cardNumber == null || cardNumber.length() < 4) {
             return "****";
@@ -113,14 +151,12 @@ public class Payment extends BaseEntity {
         return "**** **** **** " + cardNumber.substring(cardNumber.length() - 4);
     }
 
-    private String generateTransactionId() {
-        return "TXN" + System.currentTimeMillis();
-    }
-
     public enum PaymentStatus {
         SUCCESS,
         FAILED,
         PENDING,
+        RETRYING,
+        REFUND_PENDING, // charged, but the booking could not be honoured; refund queued in the outbox
         REFUNDED
     }
 }
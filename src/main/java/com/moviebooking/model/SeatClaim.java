@@ -0,0 +1,53 @@
+package com.moviebooking.model;
+
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+// One document per held or booked seat. The unique (showtimeId, seatNumber) index is what
+// makes a seat claimable by exactly one booking, across threads and application nodes.
+@Document(collection = "seat_claims")
+@CompoundIndex(name = "showtime_seat_unique", def = "{'showtimeId': 1, 'seatNumber': 1}", unique = true)
+public class SeatClaim extends BaseEntity {
+
+    private String showtimeId;
+
+    private String seatNumber;
+
+    @Indexed
+    private String bookingId;
+
+    // Constructors
+    public SeatClaim() {}
+
+    public SeatClaim(String showtimeId, String seatNumber, String bookingId) {
+        this.showtimeId = showtimeId;
+        this.seatNumber = seatNumber;
+        this.bookingId = bookingId;
+    }
+
+    // Getters and Setters
+    public String getShowtimeId() {
+        return showtimeId;
+    }
+
+    public void setShowtimeId(String showtimeId) {
+        this.showtimeId = showtimeId;
+    }
+
+    public String getSeatNumber() {
+        return seatNumber;
+    }
+
+    public void setSeatNumber(String seatNumber) {
+        this.seatNumber = seatNumber;
+    }
+
+    public String getBookingId() {
+        return bookingId;
+    }
+
+    public void setBookingId(String bookingId) {
+        this.bookingId = bookingId;
+    }
+}
@@ -0,0 +1,226 @@
+package com.moviebooking.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Result of a payment reconciliation run over payments processed in [periodStart, periodEnd).
+// Progress fields are updated while the run is in flight.
+@Document(collection = "settlement_reports")
+public class SettlementReport {
+
+    public enum Status {
+        PENDING, RUNNING, COMPLETED, FAILED // PENDING: scheduled, waiting for a node to pick it up
+    }
+
+    public enum IssueType {
+        ORPHANED_PAYMENT, AMOUNT_MISMATCH, PAID_BOOKING_NOT_CONFIRMED, CONFIRMED_WITHOUT_PAYMENT,
+        MISSING_TICKET, TICKET_VALID_AFTER_REFUND, STALE_PENDING
+    }
+
+    @Id
+    private String id;
+
+    private LocalDateTime periodStart;
+
+    private LocalDateTime periodEnd;
+
+    private Status status = Status.RUNNING;
+
+    private LocalDateTime startedAt;
+
+    private LocalDateTime completedAt;
+
+    private long paymentsScanned;
+
+    private double paymentsPerSecond;
+
+    private Map<String, Long> paymentsByStatus = new HashMap<>();
+
+    private double settledAmount;
+
+    private double refundedAmount;
+
+    private Map<String, Long> issueCounts = new HashMap<>();
+
+    // First issues found, capped so the report stays small however many payments are scanned
+    private List<Issue> issues = new ArrayList<>();
+
+    private String failureReason;
+
+    // Constructors
+    public SettlementReport() {}
+
+    public SettlementReport(String id, LocalDateTime periodStart, LocalDateTime periodEnd) {
+        this.id = id;
+        this.periodStart = periodStart;
+        this.periodEnd = periodEnd;
+        this.startedAt = LocalDateTime.now();
+    }
+
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public LocalDateTime getPeriodStart() {
+        return periodStart;
+    }
+
+    public void setPeriodStart(LocalDateTime periodStart) {
+        this.periodStart = periodStart;
+    }
+
+    public LocalDateTime getPeriodEnd() {
+        return periodEnd;
+    }
+
+    public void setPeriodEnd(LocalDateTime periodEnd) {
+        this.periodEnd = periodEnd;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(LocalDateTime completedAt) {
+        this.completedAt = completedAt;
+    }
+
+    public long getPaymentsScanned() {
+        return paymentsScanned;
+    }
+
+    public void setPaymentsScanned(long paymentsScanned) {
+        this.paymentsScanned = paymentsScanned;
+    }
+
+    public double getPaymentsPerSecond() {
+        return paymentsPerSecond;
+    }
+
+    public void setPaymentsPerSecond(double paymentsPerSecond) {
+        this.paymentsPerSecond = paymentsPerSecond;
+    }
+
+    public Map<String, Long> getPaymentsByStatus() {
+        return paymentsByStatus;
+    }
+
+    public void setPaymentsByStatus(Map<String, Long> paymentsByStatus) {
+        this.paymentsByStatus = paymentsByStatus;
+    }
+
+    public double getSettledAmount() {
+        return settledAmount;
+    }
+
+    public void setSettledAmount(double settledAmount) {
+        this.settledAmount = settledAmount;
+    }
+
+    public double getRefundedAmount() {
+        return refundedAmount;
+    }
+
+    public void setRefundedAmount(double refundedAmount) {
+        this.refundedAmount = refundedAmount;
+    }
+
+    public Map<String, Long> getIssueCounts() {
+        return issueCounts;
+    }
+
+    public void setIssueCounts(Map<String, Long> issueCounts) {
+        this.issueCounts = issueCounts;
+    }
+
+    public List<Issue> getIssues() {
+        return issues;
+    }
+
+    public void setIssues(List<Issue> issues) {
+        this.issues = issues;
+    }
+
+    public String getFailureReason() {
+        return failureReason;
+    }
+
+    public void setFailureReason(String failureReason) {
+        this.failureReason = failureReason;
+    }
+
+    public static class Issue {
+        private IssueType type;
+        private String paymentId;
+        private String bookingId;
+        private String detail;
+
+        public Issue() {}
+
+        public Issue(IssueType type, String paymentId, String bookingId, String detail) {
+            this.type = type;
+            this.paymentId = paymentId;
+            this.bookingId = bookingId;
+            this.detail = detail;
+        }
+
+        public IssueType getType() {
+            return type;
+        }
+
+        public void setType(IssueType type) {
+            this.type = type;
+        }
+
+        public String getPaymentId() {
+            return paymentId;
+        }
+
+        public void setPaymentId(String paymentId) {
+            this.paymentId = paymentId;
+        }
+
+        public String getBookingId() {
+            return bookingId;
+        }
+
+        public void setBookingId(String bookingId) {
+            this.bookingId = bookingId;
+        }
+
+        public String getDetail() {
+            return detail;
+        }
+
+        public void setDetail(String detail) {
+            this.detail = detail;
+        }
+    }
+}
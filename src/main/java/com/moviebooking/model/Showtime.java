@@ -1,5 +1,6 @@
 package com.moviebooking.model;
 
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.DBRef;
 import jakarta.validation.constraints.NotBlank;
@@ -9,6 +10,7 @@ import jakarta.validation.constraints.Positive;
 import java.time.LocalDateTime;
 
 @Document(collection = "showtimes")
+@CompoundIndex(name = "movie_active_available", def = "{'movieId': 1, 'active': 1, 'availableSeatCount': 1}")
 public class Showtime extends BaseEntity {
 
     @NotBlank(message = "Movie ID is required")
@@ -34,6 +36,14 @@ public class Showtime extends BaseEntity {
 
     private boolean active = true;
 
+    // Denormalized seat counters, maintained with atomic $inc updates on every booking status
+    // change and periodically reconciled against the bookings collection
+    private int heldSeatCount;
+
+    private int bookedSeatCount;
+
+    private Integer availableSeatCount;
+
     // Constructors
     public Showtime() {}
 
@@ -102,4 +112,28 @@ public class Showtime extends BaseEntity {
     public void setActive(boolean active) {
         this.active = active;
     }
+
+    public int getHeldSeatCount() {
+        return heldSeatCount;
+    }
+
+    public void setHeldSeatCount(int heldSeatCount) {
+        this.heldSeatCount = heldSeatCount;
+    }
+
+    public int getBookedSeatCount() {
+        return bookedSeatCount;
+    }
+
+    public void setBookedSeatCount(int bookedSeatCount) {
+        this.bookedSeatCount = bookedSeatCount;
+    }
+
+    public Integer getAvailableSeatCount() {
+        return availableSeatCount;
+    }
+
+    public void setAvailableSeatCount(Integer availableSeatCount) {
+        this.availableSeatCount = availableSeatCount;
+    }
 }
@@ -0,0 +1,159 @@
+package com.moviebooking.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+// Progress and outcome of a bulk showtime cancellation; keyed by showtime, so there is at most
+// one per showtime and a failed run can be started again
+@Document(collection = "showtime_cancellations")
+public class ShowtimeCancellation {
+
+    public enum Status {
+        RUNNING, COMPLETED, FAILED
+    }
+
+    @Id
+    private String showtimeId;
+
+    private Status status = Status.RUNNING;
+
+    private String reason;
+
+    private long bookingsScanned;
+
+    private long bookingsCancelled;
+
+    private long paymentsRefunded; // refunds queued; the outbox worker makes them at the gateway
+
+    private long ticketsInvalidated;
+
+    private LocalDateTime startedAt;
+
+    private LocalDateTime completedAt;
+
+    private Long durationMillis;
+
+    private String failureReason;
+
+    // The node running the job renews lockedUntil after every batch; a RUNNING job whose lease
+    // has lapsed was abandoned, e.g. by a crash, and may be started again
+    private String lockOwner;
+
+    private LocalDateTime lockedUntil;
+
+    // Constructors
+    public ShowtimeCancellation() {}
+
+    public ShowtimeCancellation(String showtimeId, String reason) {
+        this.showtimeId = showtimeId;
+        this.reason = reason;
+        this.startedAt = LocalDateTime.now();
+    }
+
+    // Getters and Setters
+    public String getShowtimeId() {
+        return showtimeId;
+    }
+
+    public void setShowtimeId(String showtimeId) {
+        this.showtimeId = showtimeId;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public void setReason(String reason) {
+        this.reason = reason;
+    }
+
+    public long getBookingsScanned() {
+        return bookingsScanned;
+    }
+
+    public void setBookingsScanned(long bookingsScanned) {
+        this.bookingsScanned = bookingsScanned;
+    }
+
+    public long getBookingsCancelled() {
+        return bookingsCancelled;
+    }
+
+    public void setBookingsCancelled(long bookingsCancelled) {
+        this.bookingsCancelled = bookingsCancelled;
+    }
+
+    public long getPaymentsRefunded() {
+        return paymentsRefunded;
+    }
+
+    public void setPaymentsRefunded(long paymentsRefunded) {
+        this.paymentsRefunded = paymentsRefunded;
+    }
+
+    public long getTicketsInvalidated() {
+        return ticketsInvalidated;
+    }
+
+    public void setTicketsInvalidated(long ticketsInvalidated) {
+        this.ticketsInvalidated = ticketsInvalidated;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(LocalDateTime completedAt) {
+        this.completedAt = completedAt;
+    }
+
+    public Long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public void setDurationMillis(Long durationMillis) {
+        this.durationMillis = durationMillis;
+    }
+
+    public String getFailureReason() {
+        return failureReason;
+    }
+
+    public void setFailureReason(String failureReason) {
+        this.failureReason = failureReason;
+    }
+
+    public String getLockOwner() {
+        return lockOwner;
+    }
+
+    public void setLockOwner(String lockOwner) {
+        this.lockOwner = lockOwner;
+    }
+
+    public LocalDateTime getLockedUntil() {
+        return lockedUntil;
+    }
+
+    public void setLockedUntil(LocalDateTime lockedUntil) {
+        this.lockedUntil = lockedUntil;
+    }
+}
@@ -1,30 +1,50 @@
 package com.moviebooking.model;
 
+import org.springframework.data.annotation.Transient;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import jakarta.validation.constraints.NotBlank;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Document(collection = "tickets")
+@CompoundIndex(name = "showtime_updated", def = "{'showtimeId': 1, 'updatedAt': 1}")
 public class Ticket extends BaseEntity {
 
     @NotBlank(message = "Booking ID is required")
+    @Indexed(unique = true)
     private String bookingId;
 
+    // Signed payload, see QRCodeService.createTicketPayload
     private String qrCodeData;
 
+    // Rendered on demand from qrCodeData, never stored
+    @Transient
     private String qrCodeImageBase64;
 
     private LocalDateTime generatedAt;
 
     private boolean isValid = true;
 
+    private String showtimeId;
+
+    private List<String> seatNumbers;
+
+    private LocalDateTime expiresAt;
+
+    // Set once, by the conditional update in TicketService.admitTicket
+    private LocalDateTime admittedAt;
+
     // Constructors
     public Ticket() {}
 
-    public Ticket(String bookingId) {
+    public Ticket(String bookingId, String showtimeId, List<String> seatNumbers, LocalDateTime expiresAt) {
         this.bookingId = bookingId;
-        this.qrCodeData = generateQRCodeData(bookingId);
+        this.showtimeId = showtimeId;
+        this.seatNumbers = seatNumbers;
+        this.expiresAt = expiresAt;
         this.generatedAt = LocalDateTime.now();
     }
 
@@ -69,8 +89,35 @@ public class Ticket extends BaseEntity {
         isValid = valid;
     }
 
-    private String generateQRCodeData(String bookingId) {
-        // Generate QR code data that includes booking ID and timestamp
-        return "MOVIE_TICKET:" + bookingId + ":" + System.currentTimeMillis();
+    public String getShowtimeId() {
+        return showtimeId;
+    }
+
+    public void setShowtimeId(String showtimeId) {
+        this.showtimeId = showtimeId;
+    }
+
+    public List<String> getSeatNumbers() {
+        return seatNumbers;
+    }
+
+    public void setSeatNumbers(List<String> seatNumbers) {
+        this.seatNumbers = seatNumbers;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    public LocalDateTime getAdmittedAt() {
+        return admittedAt;
+    }
+
+    public void setAdmittedAt(LocalDateTime admittedAt) {
+        this.admittedAt = admittedAt;
     }
 }
@@ -0,0 +1,94 @@
+package com.moviebooking.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+// Admission queue for one showtime. Queue tickets are numbered from 1 in arrival order and a
+// scheduled tick moves admittedSequence forward by admitRate per second, never past lastSequence,
+// so positions need no per-user state and an idle room cannot bank a burst of admissions.
+@Document(collection = "waiting_rooms")
+public class WaitingRoom {
+
+    @Id
+    private String showtimeId;
+
+    private double admitRate;
+
+    private long openedAt;
+
+    private long lastSequence;
+
+    private long admittedSequence;
+
+    // Fraction of an admission carried between ticks, so low rates still make progress
+    private double admitCredit;
+
+    private long lastTickAt;
+
+    // Constructors
+    public WaitingRoom() {}
+
+    public WaitingRoom(String showtimeId, double admitRate, long openedAt) {
+        this.showtimeId = showtimeId;
+        this.admitRate = admitRate;
+        this.openedAt = openedAt;
+        this.lastTickAt = openedAt;
+    }
+
+    // Getters and Setters
+    public String getShowtimeId() {
+        return showtimeId;
+    }
+
+    public void setShowtimeId(String showtimeId) {
+        this.showtimeId = showtimeId;
+    }
+
+    public double getAdmitRate() {
+        return admitRate;
+    }
+
+    public void setAdmitRate(double admitRate) {
+        this.admitRate = admitRate;
+    }
+
+    public long getOpenedAt() {
+        return openedAt;
+    }
+
+    public void setOpenedAt(long openedAt) {
+        this.openedAt = openedAt;
+    }
+
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    public void setLastSequence(long lastSequence) {
+        this.lastSequence = lastSequence;
+    }
+
+    public long getAdmittedSequence() {
+        return admittedSequence;
+    }
+
+    public void setAdmittedSequence(long admittedSequence) {
+        this.admittedSequence = admittedSequence;
+    }
+
+    public double getAdmitCredit() {
+        return admitCredit;
+    }
+
+    public void setAdmitCredit(double admitCredit) {
+        this.admitCredit = admitCredit;
+    }
+
+    public long getLastTickAt() {
+        return lastTickAt;
+    }
+
+    public void setLastTickAt(long lastTickAt) {
+        this.lastTickAt = lastTickAt;
+    }
+}
@@ -0,0 +1,15 @@
+package com.moviebooking.repository;
+
+import com.moviebooking.model.SeatClaim;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface SeatClaimRepository extends MongoRepository<SeatClaim, String> {
+    
+    List<SeatClaim> findByShowtimeId(String showtimeId);
+    
+    long deleteByBookingId(String bookingId);
+}
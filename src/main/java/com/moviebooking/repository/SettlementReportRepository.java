@@ -0,0 +1,13 @@
+package com.moviebooking.repository;
+
+import com.moviebooking.model.SettlementReport;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface SettlementReportRepository extends MongoRepository<SettlementReport, String> {
+
+    List<SettlementReport> findTop20ByOrderByStartedAtDesc();
+}
@@ -12,6 +12,8 @@ public interface ShowtimeRepository extends MongoRepository<Showtime, String> {
     
     List<Showtime> findByMovieIdAndActiveTrue(String movieId);
     
+    List<Showtime> findByMovieIdAndActiveTrueAndAvailableSeatCountGreaterThan(String movieId, Integer availableSeatCount);
+    
     List<Showtime> findByMovieIdAndStartTimeAfterAndActiveTrue(String movieId, LocalDateTime startTime);
     
     List<Showtime> findByScreenNumberAndStartTimeBetween(Integer screenNumber, LocalDateTime start, LocalDateTime end);
@@ -0,0 +1,67 @@
+package com.moviebooking.security;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+
+// Produces compact "payload.signature" tokens (both parts base64url) signed with HMAC-SHA256
+public class HmacSigner {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final SecretKeySpec key;
+
+    // Mac instances are not thread-safe, so each thread keeps its own
+    private final ThreadLocal<Mac> macs;
+
+    public HmacSigner(String secret) {
+        this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+        this.macs = ThreadLocal.withInitial(this::newMac);
+    }
+
+    public String sign(String payload) {
+        byte[] payloadBytes = payload.getBytes(StandardCharsets.UTF_8);
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString(payloadBytes) + "." + encoder.encodeToString(mac(payloadBytes));
+    }
+
+    // Returns the signed payload, or null if the token is malformed or the signature does not match
+    public String verify(String token) {
+        if (token == null) {
+            return null;
+        }
+        int separator = token.indexOf('.');
+        if (separator <= 0 || separator == token.length() - 1) {
+            return null;
+        }
+
+        try {
+            Base64.Decoder decoder = Base64.getUrlDecoder();
+            byte[] payloadBytes = decoder.decode(token.substring(0, separator));
+            byte[] signature = decoder.decode(token.substring(separator + 1));
+            if (!MessageDigest.isEqual(signature, mac(payloadBytes))) {
+                return null;
+            }
+            return new String(payloadBytes, StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private byte[] mac(byte[] payload) {
+        return macs.get().doFinal(payload);
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 is not available", e);
+        }
+    }
+}
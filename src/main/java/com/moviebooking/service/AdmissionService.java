@@ -0,0 +1,137 @@
+package com.moviebooking.service;
+
+import com.moviebooking.model.Showtime;
+import com.moviebooking.model.Ticket;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Per-showtime set of admitted ticket ids. Lets gates turn a repeated scan away without a write,
+// and gives live admission counts per screen. Keyed by ticket rather than seat, so the new ticket
+// for a resold seat is not mistaken for the one already used. The conditional update in
+// TicketService.admitTicket stays the authority; admissions on other nodes reach these sets with
+// the periodic refresh.
+@Service
+public class AdmissionService {
+
+    private static final Duration REFRESH_OVERLAP = Duration.ofSeconds(5); // tolerate clock skew
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${ticket.qr-validity-after-show}")
+    private Long qrValidityAfterShow;
+
+    private final Map<String, Admissions> showtimes = new ConcurrentHashMap<>();
+
+    private volatile LocalDateTime lastRefresh;
+
+    // True when this node already knows the ticket was admitted
+    public boolean isAdmitted(String showtimeId, String ticketId) {
+        Admissions admissions = admissions(showtimeId);
+        return admissions != null && ticketId != null && admissions.tickets.contains(ticketId);
+    }
+
+    public void recordAdmitted(String showtimeId, String ticketId, List<String> seatNumbers) {
+        Admissions admissions = admissions(showtimeId);
+        if (admissions != null) {
+            mark(admissions, ticketId, seatNumbers);
+        }
+    }
+
+    public Map<String, Object> getAdmissionCounts(String showtimeId) {
+        Admissions admissions = admissions(showtimeId);
+        Map<String, Object> counts = new HashMap<>();
+        counts.put("showtimeId", showtimeId);
+        counts.put("admittedTickets", admissions != null ? admissions.tickets.size() : 0);
+        counts.put("admittedSeats", admissions != null ? admissions.admittedSeats.get() : 0);
+        counts.put("totalSeats", admissions != null ? admissions.totalSeats : 0);
+        return counts;
+    }
+
+    // Showtimes this node has seen scans for, i.e. the screens currently admitting
+    public List<Map<String, Object>> getAllAdmissionCounts() {
+        return new ArrayList<>(showtimes.keySet()).stream()
+                .map(this::getAdmissionCounts)
+                .collect(Collectors.toList());
+    }
+
+    // Picks up admissions made on other nodes and drops showtimes whose tickets have expired
+    @Scheduled(fixedDelayString = "${ticket.gate-refresh-interval}")
+    public void refresh() {
+        LocalDateTime now = LocalDateTime.now();
+        showtimes.values().removeIf(admissions -> admissions.expiresAt.isBefore(now));
+
+        LocalDateTime since = lastRefresh;
+        lastRefresh = now;
+        if (since == null || showtimes.isEmpty()) {
+            return;
+        }
+        Query admittedQuery = Query.query(Criteria.where("showtimeId").in(new ArrayList<>(showtimes.keySet()))
+                .and("updatedAt").gte(since.minus(REFRESH_OVERLAP))
+                .and("admittedAt").ne(null));
+        admittedQuery.fields().include("id").include("showtimeId").include("seatNumbers");
+        try (Stream<Ticket> tickets = mongoTemplate.stream(admittedQuery, Ticket.class)) {
+            tickets.forEach(ticket -> recordAdmitted(ticket.getShowtimeId(), ticket.getId(), ticket.getSeatNumbers()));
+        }
+    }
+
+    private Admissions admissions(String showtimeId) {
+        if (showtimeId == null) {
+            return null;
+        }
+        return showtimes.computeIfAbsent(showtimeId, this::load);
+    }
+
+    private Admissions load(String showtimeId) {
+        Showtime showtime = mongoTemplate.findById(showtimeId, Showtime.class);
+        if (showtime == null) {
+            return null;
+        }
+        LocalDateTime showEnd = showtime.getEndTime() != null ? showtime.getEndTime() : showtime.getStartTime();
+        Admissions admissions = new Admissions(showtime.getTotalSeats(),
+                showEnd.plus(Duration.ofMillis(qrValidityAfterShow)));
+
+        Query admittedQuery = Query.query(Criteria.where("showtimeId").is(showtimeId).and("admittedAt").ne(null));
+        admittedQuery.fields().include("id").include("seatNumbers");
+        try (Stream<Ticket> tickets = mongoTemplate.stream(admittedQuery, Ticket.class)) {
+            tickets.forEach(ticket -> mark(admissions, ticket.getId(), ticket.getSeatNumbers()));
+        }
+        return admissions;
+    }
+
+    // Seats are counted once per ticket, however often the refresh sees it
+    private void mark(Admissions admissions, String ticketId, List<String> seatNumbers) {
+        if (ticketId != null && admissions.tickets.add(ticketId) && seatNumbers != null) {
+            admissions.admittedSeats.addAndGet(seatNumbers.size());
+        }
+    }
+
+    private static class Admissions {
+        private final Set<String> tickets = ConcurrentHashMap.newKeySet();
+        private final AtomicInteger admittedSeats = new AtomicInteger();
+        private final int totalSeats;
+        private final LocalDateTime expiresAt;
+
+        private Admissions(int totalSeats, LocalDateTime expiresAt) {
+            this.totalSeats = totalSeats;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
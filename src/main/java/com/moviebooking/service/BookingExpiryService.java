@@ -0,0 +1,115 @@
+package com.moviebooking.service;
+
+import com.moviebooking.model.Booking;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@Service
+public class BookingExpiryService {
+
+    private static final int BATCH_SIZE = 500;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private SeatInventoryService seatInventoryService;
+
+    @Autowired
+    private ShowtimeService showtimeService;
+
+    @Value("${booking.hold-sweep-interval}")
+    private Long holdSweepInterval;
+
+    // Moves PENDING_PAYMENT bookings whose hold has lapsed to EXPIRED and returns their seats.
+    // The (status, holdExpiresAt) index means each pass only touches the stale holds.
+    @Scheduled(fixedDelayString = "${booking.hold-sweep-interval}")
+    public void expireStaleHolds() {
+        LocalDateTime now = LocalDateTime.now();
+        releaseAbandonedHolds(now.minus(Duration.ofMillis(holdSweepInterval)));
+        int expired;
+        do {
+            expired = expireBatch(now);
+        } while (expired == BATCH_SIZE);
+    }
+
+    private int expireBatch(LocalDateTime now) {
+        Query staleQuery = Query.query(Criteria.where("status").is(Booking.BookingStatus.PENDING_PAYMENT)
+                .and("holdExpiresAt").lt(now))
+                .limit(BATCH_SIZE);
+        staleQuery.fields().include("id");
+        List<String> staleIds = mongoTemplate.find(staleQuery, Booking.class).stream()
+                .map(Booking::getId)
+                .collect(Collectors.toList());
+        if (staleIds.isEmpty()) {
+            return 0;
+        }
+
+        // One findAndModify per booking, so this pass releases exactly the bookings it expired:
+        // a payment that completes in the meantime wins, and so does another node's sweep
+        List<Booking> expiredBookings = new ArrayList<>();
+        for (String bookingId : staleIds) {
+            Booking booking = mongoTemplate.findAndModify(
+                    Query.query(Criteria.where("id").is(bookingId)
+                            .and("status").is(Booking.BookingStatus.PENDING_PAYMENT)),
+                    new Update().set("status", Booking.BookingStatus.EXPIRED)
+                            .set("updatedAt", now)
+                            .set("releasePending", true),
+                    FindAndModifyOptions.options().returnNew(true),
+                    Booking.class);
+            if (booking != null) {
+                expiredBookings.add(booking);
+            }
+        }
+        if (expiredBookings.isEmpty()) {
+            return staleIds.size();
+        }
+
+        List<String> expiredIds = expiredBookings.stream()
+                .map(Booking::getId)
+                .collect(Collectors.toList());
+        seatInventoryService.releaseClaims(expiredIds);
+        Map<String, Integer> releasedPerShowtime = new HashMap<>();
+        for (Booking booking : expiredBookings) {
+            seatInventoryService.release(booking.getShowtimeId(), booking.getBookedSeatNumbers());
+            releasedPerShowtime.merge(booking.getShowtimeId(), booking.getBookedSeatNumbers().size(), Integer::sum);
+        }
+        // One counter update per showtime rather than per booking
+        releasedPerShowtime.forEach((showtimeId, seats) -> showtimeService.adjustSeatCounts(showtimeId, -seats, 0));
+        mongoTemplate.updateMulti(Query.query(Criteria.where("id").in(expiredIds)),
+                new Update().unset("releasePending"), Booking.class);
+
+        return staleIds.size();
+    }
+
+    // A node that stopped between expiring a hold and releasing its claims leaves releasePending
+    // set. Claims from before the expiry are removed and the cached seat map rebuilt; the seat
+    // counters are left to the reconcile pass, since the node may already have adjusted them.
+    private void releaseAbandonedHolds(LocalDateTime expiredBefore) {
+        Query abandonedQuery = Query.query(Criteria.where("releasePending").is(true)
+                .and("status").is(Booking.BookingStatus.EXPIRED)
+                .and("updatedAt").lt(expiredBefore));
+        abandonedQuery.fields().include("showtimeId").include("updatedAt");
+        for (Booking booking : mongoTemplate.find(abandonedQuery, Booking.class)) {
+            seatInventoryService.releaseClaims(booking.getId(), booking.getUpdatedAt());
+            seatInventoryService.evict(booking.getShowtimeId());
+            mongoTemplate.updateFirst(Query.query(Criteria.where("id").is(booking.getId())),
+                    new Update().unset("releasePending"), Booking.class);
+        }
+    }
+}
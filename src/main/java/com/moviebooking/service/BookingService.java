@@ -1,76 +1,155 @@
 package com.moviebooking.service;
 
 import com.moviebooking.dto.booking.SeatAvailabilityResponse;
+import com.moviebooking.exception.InvalidStateTransitionException;
 import com.moviebooking.exception.ResourceNotFoundException;
+import com.moviebooking.exception.SeatUnavailableException;
 import com.moviebooking.model.Booking;
 import com.moviebooking.model.Showtime;
 import com.moviebooking.repository.BookingRepository;
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
+import java.util.Set;
 
 @Service
 public class BookingService {
 
+    private static final int BEST_AVAILABLE_ATTEMPTS = 3;
+
     @Autowired
     private BookingRepository bookingRepository;
 
     @Autowired
     private ShowtimeService showtimeService;
 
-    public SeatAvailabilityResponse getSeatAvailability(String showtimeId) {
-        Showtime showtime = showtimeService.getShowtimeById(showtimeId);
+    @Autowired
+    private SeatInventoryService seatInventoryService;
+
+    @Autowired
+    private IdGenerator idGenerator;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
 
-        // Get all bookings for this showtime that are confirmed or pending payment
-        List<Booking.BookingStatus> occupiedStatuses = Arrays.asList(
-                Booking.BookingStatus.CONFIRMED,
-                Booking.BookingStatus.PENDING_PAYMENT);
+    @Autowired
+    private TicketService ticketService;
 
-        List<Booking> bookings = bookingRepository.findByShowtimeIdAndStatusIn(showtimeId, occupiedStatuses);
+    @Value("${booking.hold-expiration}")
+    private Long holdExpiration;
 
-        // Collect all booked seat numbers
-        List<String> bookedSeats = bookings.stream()
-                .flatMap(booking -> booking.getBookedSeatNumbers().stream())
-                .distinct()
-                .collect(Collectors.toList());
+    public SeatAvailabilityResponse getSeatAvailability(String showtimeId) {
+        return getSeatAvailability(showtimeId, false);
+    }
 
-        // Generate all possible seat numbers (A1-A10, B1-B10, etc. for 100 seats)
-        List<String> allSeats = generateSeatNumbers(showtime.getTotalSeats());
+    public SeatAvailabilityResponse getSeatAvailability(String showtimeId, boolean compact) {
+        // Served from the in-memory seat map, which is loaded once per showtime and kept in
+        // step with booking changes, so seat-map reads never hit Mongo
+        SeatMap seatMap = seatInventoryService.getSeatMap(showtimeId);
+        long[] occupancy = seatMap.snapshot();
 
-        // Calculate available seats
-        List<String> availableSeats = allSeats.stream()
-                .filter(seat -> !bookedSeats.contains(seat))
-                .collect(Collectors.toList());
+        if (compact) {
+            return SeatAvailabilityResponse.compact(showtimeId, seatMap.getTotalSeats(), SeatLayout.SEATS_PER_ROW,
+                    seatMap.getTotalSeats() - SeatMap.countBooked(occupancy), seatMap.encodeOccupancy(occupancy));
+        }
 
-        return new SeatAvailabilityResponse(showtimeId, showtime.getTotalSeats(), bookedSeats, availableSeats);
+        return new SeatAvailabilityResponse(showtimeId, seatMap.getTotalSeats(),
+                seatMap.bookedSeats(occupancy), seatMap.availableSeats(occupancy));
     }
 
     public Booking createBooking(String userId, String showtimeId, List<String> seatNumbers) {
-        Showtime showtime = showtimeService.getShowtimeById(showtimeId);
+        Showtime showtime = showtimeService.getBookableShowtime(showtimeId);
 
-        // Check seat availability
-        SeatAvailabilityResponse availability = getSeatAvailability(showtimeId);
-
-        // Verify all requested seats are available
+        // Cheap pre-check against the seat map so obviously taken seats never reach Mongo
+        SeatMap seatMap = seatInventoryService.getSeatMap(showtimeId);
+        Set<Integer> requestedSeats = new HashSet<>();
         for (String seat : seatNumbers) {
-            if (!availability.getAvailableSeats().contains(seat)) {
+            int index = SeatLayout.seatIndex(seat, seatMap.getTotalSeats());
+            if (index < 0) {
                 throw new IllegalArgumentException("Seat " + seat + " is not available");
             }
+            if (seatMap.isBooked(index)) {
+                throw new SeatUnavailableException(List.of(seat));
+            }
+            if (!requestedSeats.add(index)) {
+                throw new IllegalArgumentException("Seat " + seat + " is selected more than once");
+            }
         }
 
         // Calculate total price
         double totalPrice = seatNumbers.size() * showtime.getTicketPrice();
 
-        // Create booking
+        // Create booking with its id assigned up front so the seat claims can reference it
         Booking booking = new Booking(showtimeId, userId, seatNumbers, totalPrice);
-        booking.setBookingReference("BK" + System.currentTimeMillis());
+        booking.setId(new ObjectId().toHexString());
+        booking.setCreatedAt(LocalDateTime.now());
+        booking.setBookingReference(idGenerator.nextBookingReference());
+        booking.setHoldExpiresAt(booking.getCreatedAt().plus(Duration.ofMillis(holdExpiration)));
+
+        // Claim the seats atomically; losers of a race get a SeatUnavailableException
+        seatInventoryService.claimSeats(showtimeId, booking.getId(), seatNumbers);
+        try {
+            booking = bookingRepository.save(booking);
+        } catch (RuntimeException e) {
+            seatInventoryService.releaseClaims(booking.getId());
+            throw e;
+        }
+
+        seatInventoryService.markBooked(showtimeId, seatNumbers);
+        showtimeService.recordSeatTransition(showtimeId, seatNumbers.size(), null, booking.getStatus());
+        return booking;
+    }
+
+    public List<String> findBestAvailableSeats(String showtimeId, int partySize) {
+        return findBestAvailableSeats(showtimeId, partySize, SeatBlockScorer.CENTER);
+    }
+
+    public List<String> findBestAvailableSeats(String showtimeId, int partySize, SeatBlockScorer scorer) {
+        if (partySize < 1 || partySize > SeatLayout.SEATS_PER_ROW) {
+            throw new IllegalArgumentException("Party size must be between 1 and " + SeatLayout.SEATS_PER_ROW);
+        }
 
-        return bookingRepository.save(booking);
+        SeatMap seatMap = seatInventoryService.getSeatMap(showtimeId);
+        int firstSeat = seatMap.findBestBlock(seatMap.snapshot(), partySize, scorer);
+        if (firstSeat < 0) {
+            return List.of();
+        }
+
+        List<String> seats = new ArrayList<>(partySize);
+        for (int index = firstSeat; index < firstSeat + partySize; index++) {
+            seats.add(seatMap.label(index));
+        }
+        return seats;
+    }
+
+    // Finds the best block and books it in one call. If another buyer takes part of the block
+    // first, the seat map already reflects it, so the next attempt picks a different block.
+    public Booking bookBestAvailable(String userId, String showtimeId, int partySize) {
+        for (int attempt = 1; ; attempt++) {
+            List<String> seats = findBestAvailableSeats(showtimeId, partySize);
+            if (seats.isEmpty()) {
+                throw new IllegalArgumentException("No " + partySize + " adjacent seats are available");
+            }
+            try {
+                return createBooking(userId, showtimeId, seats);
+            } catch (SeatUnavailableException e) {
+                if (attempt == BEST_AVAILABLE_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
     }
 
     public List<Booking> getUserBookings(String userId) {
@@ -84,25 +163,97 @@ public class BookingService {
 
     public Booking updateBookingStatus(String bookingId, Booking.BookingStatus status) {
         Booking booking = getBookingById(bookingId);
-        booking.setStatus(status);
-        return bookingRepository.save(booking);
-    }
+        Booking.BookingStatus previousStatus = booking.getStatus();
+        if (!previousStatus.canTransitionTo(status)) {
+            throw new InvalidStateTransitionException(
+                    "Booking cannot move from " + previousStatus + " to " + status);
+        }
+        boolean wasOccupied = SeatInventoryService.OCCUPIED_STATUSES.contains(previousStatus);
+        boolean isOccupied = SeatInventoryService.OCCUPIED_STATUSES.contains(status);
+
+        // Re-occupying seats has to win the seat claims before the status changes. The booking owns
+        // no seats yet, so claims an interrupted expiry left behind are dropped first.
+        if (!wasOccupied && isOccupied) {
+            seatInventoryService.releaseClaims(bookingId);
+            seatInventoryService.claimSeats(booking.getShowtimeId(), bookingId, booking.getBookedSeatNumbers());
+        }
 
-    public void cancelBooking(String bookingId, String userId) {
-        Booking booking = getBookingById(bookingId);
+        booking = transition(Query.query(Criteria.where("id").is(bookingId).and("status").is(previousStatus)), status);
+        if (booking == null) {
+            if (!wasOccupied && isOccupied) {
+                seatInventoryService.releaseClaims(bookingId);
+            }
+            throw transitionRejected(bookingId, status);
+        }
 
-        // Verify the booking belongs to the user
-        if (!booking.getUserId().equals(userId)) {
-            throw new IllegalArgumentException("You can only cancel your own bookings");
+        if (!wasOccupied && isOccupied) {
+            seatInventoryService.markBooked(booking.getShowtimeId(), booking.getBookedSeatNumbers());
+        } else if (wasOccupied && !isOccupied) {
+            releaseSeats(booking);
         }
+        // Gates trust the signed QR payload and only check revocation, so the ticket must go too
+        if (previousStatus == Booking.BookingStatus.CONFIRMED) {
+            ticketService.invalidateTicketByBookingId(bookingId);
+        }
+        showtimeService.recordSeatTransition(booking.getShowtimeId(), booking.getBookedSeatNumbers().size(),
+                previousStatus, status);
+        return booking;
+    }
 
-        // Only allow cancellation if booking is pending payment
-        if (booking.getStatus() != Booking.BookingStatus.PENDING_PAYMENT) {
-            throw new IllegalArgumentException("Only pending bookings can be cancelled");
+    // Idempotent so a redelivered confirmation is a no-op
+    public Booking confirmBooking(String bookingId) {
+        Booking booking = transition(Query.query(Criteria.where("id").is(bookingId)
+                .and("status").is(Booking.BookingStatus.PENDING_PAYMENT)), Booking.BookingStatus.CONFIRMED);
+        if (booking == null) {
+            Booking current = getBookingById(bookingId);
+            if (current.getStatus() == Booking.BookingStatus.CONFIRMED) {
+                return current;
+            }
+            if (current.getStatus() == Booking.BookingStatus.EXPIRED) {
+                // The hold lapsed after the payment was recorded; win the seats back if nobody else
+                // took them, otherwise a SeatUnavailableException sends the payment to a refund
+                return updateBookingStatus(bookingId, Booking.BookingStatus.CONFIRMED);
+            }
+            throw new InvalidStateTransitionException(
+                    "Booking cannot move from " + current.getStatus() + " to " + Booking.BookingStatus.CONFIRMED);
         }
 
-        booking.setStatus(Booking.BookingStatus.CANCELLED);
-        bookingRepository.save(booking);
+        // Held and booked seats are both occupied, only the counters move
+        showtimeService.recordSeatTransition(booking.getShowtimeId(), booking.getBookedSeatNumbers().size(),
+                Booking.BookingStatus.PENDING_PAYMENT, Booking.BookingStatus.CONFIRMED);
+        return booking;
+    }
+
+    // Keeps the seats held while a payment is queued or waiting for a retry; returns false once
+    // the booking is no longer awaiting payment
+    public boolean extendHold(String bookingId) {
+        return mongoTemplate.updateFirst(
+                Query.query(Criteria.where("id").is(bookingId)
+                        .and("status").is(Booking.BookingStatus.PENDING_PAYMENT)),
+                new Update().set("holdExpiresAt", LocalDateTime.now().plus(Duration.ofMillis(holdExpiration))),
+                Booking.class).getMatchedCount() > 0;
+    }
+
+    public void cancelBooking(String bookingId, String userId) {
+        // Ownership and the pending check are part of the update, so a concurrent payment
+        // confirmation and this cancellation cannot both succeed
+        Booking booking = transition(Query.query(Criteria.where("id").is(bookingId)
+                .and("userId").is(userId)
+                .and("status").is(Booking.BookingStatus.PENDING_PAYMENT)), Booking.BookingStatus.CANCELLED);
+        if (booking == null) {
+            Booking current = getBookingById(bookingId);
+
+            // Verify the booking belongs to the user
+            if (!current.getUserId().equals(userId)) {
+                throw new IllegalArgumentException("You can only cancel your own bookings");
+            }
+            throw new InvalidStateTransitionException(
+                    "Only pending bookings can be cancelled, this booking is " + current.getStatus());
+        }
+
+        releaseSeats(booking);
+        showtimeService.recordSeatTransition(booking.getShowtimeId(), booking.getBookedSeatNumbers().size(),
+                Booking.BookingStatus.PENDING_PAYMENT, Booking.BookingStatus.CANCELLED);
     }
 
     public List<Booking> getAllBookings() {
@@ -113,21 +264,23 @@ public class BookingService {
         return bookingRepository.findByShowtimeId(showtimeId);
     }
 
-    private List<String> generateSeatNumbers(int totalSeats) {
-        List<String> seats = new ArrayList<>();
-        int seatsPerRow = 10;
-        int rows = (int) Math.ceil((double) totalSeats / seatsPerRow);
-
-        for (int row = 0; row < rows; row++) {
-            char rowLetter = (char) ('A' + row);
-            int seatsInThisRow = Math.min(seatsPerRow, totalSeats - (row * seatsPerRow));
+    // One findAndModify: applies only if the query still matches, returns null when it lost the race
+    private Booking transition(Query expected, Booking.BookingStatus status) {
+        return mongoTemplate.findAndModify(expected,
+                new Update().set("status", status).set("updatedAt", LocalDateTime.now()),
+                FindAndModifyOptions.options().returnNew(true),
+                Booking.class);
+    }
 
-            for (int seat = 1; seat <= seatsInThisRow; seat++) {
-                seats.add(rowLetter + String.valueOf(seat));
-            }
-        }
+    private InvalidStateTransitionException transitionRejected(String bookingId, Booking.BookingStatus status) {
+        Booking current = getBookingById(bookingId);
+        return new InvalidStateTransitionException(
+                "Booking cannot move from " + current.getStatus() + " to " + status + ", it was changed concurrently");
+    }
 
-        return seats;
+    private void releaseSeats(Booking booking) {
+        seatInventoryService.releaseClaims(booking.getId());
+        seatInventoryService.release(booking.getShowtimeId(), booking.getBookedSeatNumbers());
     }
 
     public List<Booking> findByBookingReference(String bookingReference) {
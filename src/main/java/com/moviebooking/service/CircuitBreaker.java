@@ -0,0 +1,102 @@
+package com.moviebooking.service;
+
+// Count-based circuit breaker. Opens when the failure rate over the last windowSize calls
+// crosses the threshold, rejects calls while open, then lets one trial call through to decide
+// whether to close again.
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final boolean[] failed;
+    private final int minimumCalls;
+    private final int failureRateThreshold;
+    private final long openDuration;
+
+    private int position;
+    private int recorded;
+    private int failures;
+    private State state = State.CLOSED;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    public CircuitBreaker(int windowSize, int minimumCalls, int failureRateThreshold, long openDuration) {
+        this.failed = new boolean[windowSize];
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDuration = openDuration;
+    }
+
+    // Every granted call must be followed by onSuccess or onFailure
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.currentTimeMillis() - openedAt < openDuration) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialInFlight) {
+                return false;
+            }
+            trialInFlight = true;
+        }
+        return true;
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            close();
+            return;
+        }
+        record(false);
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+            return;
+        }
+        record(true);
+        if (recorded >= minimumCalls && failures * 100 >= failureRateThreshold * recorded) {
+            open();
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized double getFailureRate() {
+        return recorded == 0 ? 0 : (double) failures / recorded;
+    }
+
+    private void record(boolean failure) {
+        if (recorded == failed.length) {
+            if (failed[position]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        failed[position] = failure;
+        if (failure) {
+            failures++;
+        }
+        position = (position + 1) % failed.length;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.currentTimeMillis();
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        position = 0;
+        recorded = 0;
+        failures = 0;
+    }
+}
@@ -0,0 +1,155 @@
+package com.moviebooking.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Snowflake-style 63-bit ids: 41 bits of milliseconds since 2024-01-01, 10 bits of node id and
+// 12 bits of sequence. Unique across threads and nodes without a database round trip per id.
+// Unless configured, the node id is leased from Mongo at startup and renewed in the background,
+// so two live nodes never share one.
+@Component
+public class IdGenerator {
+
+    private static final long EPOCH = 1704067200000L; // 2024-01-01T00:00:00Z
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+
+    // Crockford base32: no I, L, O or U, so references are easy to read out and type
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+
+    private static final String NODE_LEASES = "id_generator_nodes";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${id-generator.node-id}")
+    private Long configuredNodeId;
+
+    @Value("${id-generator.node-lease}")
+    private Long nodeLease;
+
+    private final String owner = UUID.randomUUID().toString();
+
+    private volatile long nodeId;
+
+    // A configured node id never expires
+    private volatile LocalDateTime leasedUntil = LocalDateTime.MAX;
+
+    // Last issued (timestamp << SEQUENCE_BITS | sequence). When a millisecond runs out of
+    // sequence numbers, or the clock steps back, it simply moves ahead of the wall clock.
+    private final AtomicLong state = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        if (configuredNodeId < 0) {
+            leaseNodeId();
+            return;
+        }
+        if (configuredNodeId > MAX_NODE_ID) {
+            throw new IllegalStateException("id-generator.node-id must be between 0 and " + MAX_NODE_ID);
+        }
+        nodeId = configuredNodeId;
+    }
+
+    // Renews well inside the lease; a node that lost its id, e.g. after a long pause, leases a new one
+    @Scheduled(fixedDelayString = "${id-generator.node-lease-renewal}")
+    public void renewLease() {
+        if (configuredNodeId >= 0) {
+            return;
+        }
+        LocalDateTime until = LocalDateTime.now().plus(Duration.ofMillis(nodeLease));
+        boolean renewed = mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(nodeId).and("owner").is(owner)),
+                new Update().set("leasedUntil", until),
+                NODE_LEASES).getMatchedCount() > 0;
+        if (renewed) {
+            leasedUntil = until;
+        } else {
+            leaseNodeId();
+        }
+    }
+
+    @PreDestroy
+    public void releaseLease() {
+        if (configuredNodeId < 0) {
+            mongoTemplate.remove(Query.query(Criteria.where("_id").is(nodeId).and("owner").is(owner)), NODE_LEASES);
+        }
+    }
+
+    public long nextId() {
+        // Past the lease another node may already hold this node id
+        if (leasedUntil.isBefore(LocalDateTime.now())) {
+            throw new IllegalStateException("Node id lease has lapsed");
+        }
+        long timestamp = System.currentTimeMillis() - EPOCH;
+        while (true) {
+            long last = state.get();
+            long next = timestamp > (last >>> SEQUENCE_BITS) ? timestamp << SEQUENCE_BITS : last + 1;
+            if (state.compareAndSet(last, next)) {
+                long nextTimestamp = next >>> SEQUENCE_BITS;
+                long sequence = next & ((1L << SEQUENCE_BITS) - 1);
+                return (nextTimestamp << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | sequence;
+            }
+        }
+    }
+
+    public String nextBookingReference() {
+        return "BK" + encode(nextId());
+    }
+
+    public String nextTransactionId() {
+        return "TXN" + encode(nextId());
+    }
+
+    // 13 base32 characters cover all 63 bits and sort in the same order as the ids
+    public static String encode(long id) {
+        char[] chars = new char[13];
+        for (int i = chars.length - 1; i >= 0; i--) {
+            chars[i] = ALPHABET[(int) (id & 31)];
+            id >>>= 5;
+        }
+        return new String(chars);
+    }
+
+    // Takes the first free node id, starting from a random one so nodes that start together rarely
+    // compete. An id whose lease lapsed belonged to a node that stopped; a live holder makes the
+    // upsert collide with its document on _id.
+    private void leaseNodeId() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime until = now.plus(Duration.ofMillis(nodeLease));
+        long start = ThreadLocalRandom.current().nextLong(MAX_NODE_ID + 1);
+        for (long i = 0; i <= MAX_NODE_ID; i++) {
+            long candidate = (start + i) & MAX_NODE_ID;
+            try {
+                mongoTemplate.upsert(
+                        Query.query(Criteria.where("_id").is(candidate).orOperator(
+                                Criteria.where("owner").is(owner),
+                                Criteria.where("leasedUntil").lt(now))),
+                        new Update().set("owner", owner).set("leasedUntil", until),
+                        NODE_LEASES);
+                nodeId = candidate;
+                leasedUntil = until;
+                return;
+            } catch (DuplicateKeyException e) {
+                // Held by a live node
+            }
+        }
+        throw new IllegalStateException("All " + (MAX_NODE_ID + 1) + " node ids are leased");
+    }
+}
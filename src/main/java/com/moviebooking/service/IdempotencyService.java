@@ -0,0 +1,196 @@
+package com.moviebooking.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.client.result.UpdateResult;
+import com.moviebooking.dto.ApiResponse;
+import com.moviebooking.exception.IdempotencyConflictException;
+import com.moviebooking.model.IdempotencyRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+@Service
+public class IdempotencyService {
+
+    private static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final long RECORD_HOURS = 24; // matches the TTL index on IdempotencyRecord
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${idempotency.cache-size}")
+    private Integer cacheSize;
+
+    @Value("${idempotency.lease}")
+    private Long lease;
+
+    // Completed records, most recently used last; retries usually land on the same node
+    private final Map<String, IdempotencyRecord> cache = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, IdempotencyRecord> eldest) {
+            return size() > cacheSize;
+        }
+    };
+
+    // Runs the action once per (scope, key). A retry with the same key gets the stored response
+    // from the front cache or a single lookup; failed attempts are forgotten so they can be retried.
+    public <T> ResponseEntity<ApiResponse<T>> execute(String key, String scope, Object request, Class<T> dataType,
+                                                      Supplier<ResponseEntity<ApiResponse<T>>> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+
+        String recordId = scope + ":" + key;
+        String requestHash = hash(request);
+        JavaType responseType = objectMapper.getTypeFactory().constructParametricType(ApiResponse.class, dataType);
+
+        IdempotencyRecord existing = findCompleted(recordId);
+        if (existing == null) {
+            existing = mongoTemplate.findById(recordId, IdempotencyRecord.class);
+        }
+        String owner = null;
+        if (existing == null) {
+            IdempotencyRecord record = new IdempotencyRecord(recordId, requestHash);
+            record.setLockOwner(UUID.randomUUID().toString());
+            record.setLockedUntil(LocalDateTime.now().plus(Duration.ofMillis(lease)));
+            try {
+                mongoTemplate.insert(record);
+                owner = record.getLockOwner();
+            } catch (DuplicateKeyException e) {
+                existing = mongoTemplate.findById(recordId, IdempotencyRecord.class);
+            }
+        }
+        if (existing != null) {
+            owner = takeOver(existing, requestHash);
+            if (owner == null) {
+                return replay(existing, requestHash, responseType);
+            }
+        }
+
+        ResponseEntity<ApiResponse<T>> response;
+        try {
+            response = action.get();
+        } catch (RuntimeException e) {
+            mongoTemplate.remove(owned(recordId, owner), IdempotencyRecord.class);
+            throw e;
+        }
+
+        complete(recordId, owner, requestHash, response);
+        return response;
+    }
+
+    // An IN_PROGRESS record whose lease ran out belongs to a request that died (node crash, lost
+    // connection before the cleanup); the first retry to swap in its own owner runs the action
+    private String takeOver(IdempotencyRecord record, String requestHash) {
+        if (record.getStatus() != IdempotencyRecord.Status.IN_PROGRESS
+                || !record.getRequestHash().equals(requestHash)) {
+            return null;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        String owner = UUID.randomUUID().toString();
+        IdempotencyRecord taken = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("id").is(record.getId())
+                        .and("status").is(IdempotencyRecord.Status.IN_PROGRESS)
+                        .orOperator(Criteria.where("lockedUntil").lt(now), Criteria.where("lockedUntil").exists(false))),
+                new Update().set("lockOwner", owner).set("lockedUntil", now.plus(Duration.ofMillis(lease))),
+                IdempotencyRecord.class);
+        return taken != null ? owner : null;
+    }
+
+    private Query owned(String recordId, String owner) {
+        return Query.query(Criteria.where("id").is(recordId).and("lockOwner").is(owner));
+    }
+
+    private <T> ResponseEntity<ApiResponse<T>> replay(IdempotencyRecord record, String requestHash, JavaType responseType) {
+        if (!record.getRequestHash().equals(requestHash)) {
+            throw new IllegalArgumentException("Idempotency-Key was already used for a different request");
+        }
+        if (record.getStatus() != IdempotencyRecord.Status.COMPLETED) {
+            throw new IdempotencyConflictException("A request with this Idempotency-Key is still being processed");
+        }
+        remember(record);
+
+        try {
+            ApiResponse<T> body = objectMapper.readValue(record.getResponseBody(), responseType);
+            return ResponseEntity.status(record.getHttpStatus()).header(REPLAYED_HEADER, "true").body(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Stored idempotent response could not be read", e);
+        }
+    }
+
+    private void complete(String recordId, String owner, String requestHash, ResponseEntity<?> response) {
+        String body;
+        try {
+            body = objectMapper.writeValueAsString(response.getBody());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Response could not be stored for idempotent replay", e);
+        }
+
+        // A request that outlived its lease lost the record to a retry, which stores its own response
+        UpdateResult result = mongoTemplate.updateFirst(owned(recordId, owner),
+                new Update().set("status", IdempotencyRecord.Status.COMPLETED)
+                        .set("httpStatus", response.getStatusCode().value())
+                        .set("responseBody", body)
+                        .unset("lockOwner")
+                        .unset("lockedUntil"),
+                IdempotencyRecord.class);
+        if (result.getModifiedCount() == 0) {
+            return;
+        }
+
+        IdempotencyRecord record = new IdempotencyRecord(recordId, requestHash);
+        record.setStatus(IdempotencyRecord.Status.COMPLETED);
+        record.setHttpStatus(response.getStatusCode().value());
+        record.setResponseBody(body);
+        remember(record);
+    }
+
+    private IdempotencyRecord findCompleted(String recordId) {
+        synchronized (cache) {
+            IdempotencyRecord record = cache.get(recordId);
+            if (record != null && record.getCreatedAt().isBefore(LocalDateTime.now().minusHours(RECORD_HOURS))) {
+                cache.remove(recordId);
+                return null;
+            }
+            return record;
+        }
+    }
+
+    private void remember(IdempotencyRecord record) {
+        synchronized (cache) {
+            cache.put(record.getId(), record);
+        }
+    }
+
+    private String hash(Object request) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(objectMapper.writeValueAsString(request).getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Request could not be fingerprinted", e);
+        }
+    }
+}
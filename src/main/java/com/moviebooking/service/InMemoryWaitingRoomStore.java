@@ -0,0 +1,83 @@
+package com.moviebooking.service;
+
+import com.moviebooking.model.WaitingRoom;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Single-node store; queue numbers are handed out under the map's per-entry lock
+@Component
+@ConditionalOnProperty(name = "waiting-room.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryWaitingRoomStore implements WaitingRoomStore {
+
+    private final ConcurrentHashMap<String, WaitingRoom> rooms = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<String, Set<Long>> consumed = new ConcurrentHashMap<>();
+
+    @Override
+    public WaitingRoom open(WaitingRoom room) {
+        consumed.remove(room.getShowtimeId());
+        rooms.put(room.getShowtimeId(), room);
+        return room;
+    }
+
+    @Override
+    public void close(String showtimeId) {
+        rooms.remove(showtimeId);
+        consumed.remove(showtimeId);
+    }
+
+    @Override
+    public Optional<WaitingRoom> find(String showtimeId) {
+        return Optional.ofNullable(rooms.get(showtimeId));
+    }
+
+    @Override
+    public List<WaitingRoom> findAll() {
+        return new ArrayList<>(rooms.values());
+    }
+
+    @Override
+    public long enqueue(String showtimeId) {
+        long[] sequence = {-1};
+        rooms.computeIfPresent(showtimeId, (id, room) -> {
+            room.setLastSequence(room.getLastSequence() + 1);
+            sequence[0] = room.getLastSequence();
+            return room;
+        });
+        return sequence[0];
+    }
+
+    @Override
+    public boolean advance(String showtimeId, long expectedTickAt, long tickAt, long admittedSequence, double admitCredit) {
+        boolean[] advanced = {false};
+        rooms.computeIfPresent(showtimeId, (id, room) -> {
+            if (room.getLastTickAt() == expectedTickAt) {
+                room.setAdmittedSequence(Math.min(admittedSequence, room.getLastSequence()));
+                room.setAdmitCredit(admitCredit);
+                room.setLastTickAt(tickAt);
+                advanced[0] = true;
+            }
+            return room;
+        });
+        return advanced[0];
+    }
+
+    @Override
+    public boolean consume(String showtimeId, long sequence) {
+        return consumed.computeIfAbsent(showtimeId, id -> ConcurrentHashMap.newKeySet()).add(sequence);
+    }
+
+    @Override
+    public void release(String showtimeId, long sequence) {
+        Set<Long> sequences = consumed.get(showtimeId);
+        if (sequences != null) {
+            sequences.remove(sequence);
+        }
+    }
+}
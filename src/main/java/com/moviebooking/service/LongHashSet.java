@@ -0,0 +1,99 @@
+package com.moviebooking.service;
+
+// Open-addressing set of 64-bit values: one long[] with linear probing and backward-shift
+// deletion, so no boxing, no per-entry objects and no tombstones. 0 marks an empty slot, so a
+// zero value is stored as 1.
+public class LongHashSet {
+
+    private static final float MAX_LOAD = 0.5f;
+
+    private long[] slots;
+    private int size;
+
+    public LongHashSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, (int) (expectedSize / MAX_LOAD)) - 1) << 1;
+        this.slots = new long[capacity];
+    }
+
+    public synchronized boolean add(long value) {
+        value = nonZero(value);
+        if (size + 1 > slots.length * MAX_LOAD) {
+            resize(slots.length << 1);
+        }
+        int mask = slots.length - 1;
+        for (int slot = index(value, mask); ; slot = (slot + 1) & mask) {
+            if (slots[slot] == value) {
+                return false;
+            }
+            if (slots[slot] == 0) {
+                slots[slot] = value;
+                size++;
+                return true;
+            }
+        }
+    }
+
+    public synchronized boolean contains(long value) {
+        value = nonZero(value);
+        int mask = slots.length - 1;
+        for (int slot = index(value, mask); slots[slot] != 0; slot = (slot + 1) & mask) {
+            if (slots[slot] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public synchronized boolean remove(long value) {
+        value = nonZero(value);
+        int mask = slots.length - 1;
+        int slot = index(value, mask);
+        while (slots[slot] != value) {
+            if (slots[slot] == 0) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        // Shift later entries of the probe run back so lookups never stop at a hole too early
+        int hole = slot;
+        for (int next = (hole + 1) & mask; slots[next] != 0; next = (next + 1) & mask) {
+            int home = index(slots[next], mask);
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                slots[hole] = slots[next];
+                hole = next;
+            }
+        }
+        slots[hole] = 0;
+        size--;
+        return true;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private void resize(int capacity) {
+        long[] old = slots;
+        slots = new long[capacity];
+        int mask = capacity - 1;
+        for (long value : old) {
+            if (value != 0) {
+                int slot = index(value, mask);
+                while (slots[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = value;
+            }
+        }
+    }
+
+    private static long nonZero(long value) {
+        return value == 0 ? 1 : value;
+    }
+
+    // Values are already hashes; fold the high bits in so the low index bits are well mixed
+    private static int index(long value, int mask) {
+        return (int) (value ^ (value >>> 32)) & mask;
+    }
+}
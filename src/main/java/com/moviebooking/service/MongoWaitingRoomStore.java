@@ -0,0 +1,117 @@
+package com.moviebooking.service;
+
+import com.moviebooking.model.WaitingRoom;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Shared store for multi-node deployments: queue numbers come from an atomic $inc on the room
+// document, and room lookups are cached briefly so admission checks rarely reach Mongo
+@Component
+@ConditionalOnProperty(name = "waiting-room.store", havingValue = "mongo")
+public class MongoWaitingRoomStore implements WaitingRoomStore {
+
+    private static final long CACHE_MILLIS = 1000;
+
+    private static final String ADMISSIONS = "waiting_room_admissions";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private final ConcurrentHashMap<String, CachedRoom> cache = new ConcurrentHashMap<>();
+
+    @Override
+    public WaitingRoom open(WaitingRoom room) {
+        cache.remove(room.getShowtimeId());
+        removeAdmissions(room.getShowtimeId());
+        return mongoTemplate.save(room);
+    }
+
+    @Override
+    public void close(String showtimeId) {
+        mongoTemplate.remove(Query.query(Criteria.where("showtimeId").is(showtimeId)), WaitingRoom.class);
+        cache.remove(showtimeId);
+        removeAdmissions(showtimeId);
+    }
+
+    @Override
+    public Optional<WaitingRoom> find(String showtimeId) {
+        long now = System.currentTimeMillis();
+        CachedRoom cached = cache.get(showtimeId);
+        if (cached == null || now - cached.loadedAt > CACHE_MILLIS) {
+            cached = new CachedRoom(mongoTemplate.findById(showtimeId, WaitingRoom.class), now);
+            cache.put(showtimeId, cached);
+        }
+        return Optional.ofNullable(cached.room);
+    }
+
+    @Override
+    public List<WaitingRoom> findAll() {
+        return mongoTemplate.findAll(WaitingRoom.class);
+    }
+
+    @Override
+    public long enqueue(String showtimeId) {
+        WaitingRoom room = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("showtimeId").is(showtimeId)),
+                new Update().inc("lastSequence", 1),
+                FindAndModifyOptions.options().returnNew(true),
+                WaitingRoom.class);
+        return room != null ? room.getLastSequence() : -1;
+    }
+
+    @Override
+    public boolean advance(String showtimeId, long expectedTickAt, long tickAt, long admittedSequence, double admitCredit) {
+        // Every node runs the tick; the lastTickAt guard lets only one of them move the room per tick
+        Query query = Query.query(Criteria.where("showtimeId").is(showtimeId).and("lastTickAt").is(expectedTickAt));
+        Update update = new Update()
+                .set("admittedSequence", admittedSequence)
+                .set("admitCredit", admitCredit)
+                .set("lastTickAt", tickAt);
+        return mongoTemplate.updateFirst(query, update, WaitingRoom.class).getModifiedCount() > 0;
+    }
+
+    @Override
+    public boolean consume(String showtimeId, long sequence) {
+        try {
+            mongoTemplate.insert(new Document("_id", admissionId(showtimeId, sequence)).append("showtimeId", showtimeId), ADMISSIONS);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void release(String showtimeId, long sequence) {
+        mongoTemplate.remove(Query.query(Criteria.where("_id").is(admissionId(showtimeId, sequence))), ADMISSIONS);
+    }
+
+    private void removeAdmissions(String showtimeId) {
+        mongoTemplate.remove(Query.query(Criteria.where("showtimeId").is(showtimeId)), ADMISSIONS);
+    }
+
+    private String admissionId(String showtimeId, long sequence) {
+        return showtimeId + ":" + sequence;
+    }
+
+    private static class CachedRoom {
+        private final WaitingRoom room;
+        private final long loadedAt;
+
+        CachedRoom(WaitingRoom room, long loadedAt) {
+            this.room = room;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.moviebooking.service;
+
+import com.moviebooking.exception.InvalidStateTransitionException;
+import com.moviebooking.exception.SeatUnavailableException;
+import com.moviebooking.model.OutboxEvent;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@Service
+public class OutboxService {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private TicketService ticketService;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Value("${outbox.batch-size}")
+    private Integer batchSize;
+
+    @Value("${outbox.claim-lease}")
+    private Long claimLease;
+
+    @Value("${outbox.retry-delay}")
+    private Long retryDelay;
+
+    @Value("${outbox.max-attempts}")
+    private Integer maxAttempts;
+
+    // Identifies this node's claims
+    private final String dispatcherId = UUID.randomUUID().toString();
+
+    // Wake-ups after a commit; at most one is queued, extra ones are already covered by it
+    private final ThreadPoolExecutor kicker = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(1), runnable -> {
+                Thread thread = new Thread(runnable, "outbox-dispatcher");
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.DiscardPolicy());
+
+    // Must be called inside the transaction that makes the change
+    public void record(OutboxEvent.Type type, String aggregateId) {
+        mongoTemplate.insert(new OutboxEvent(type, aggregateId, LocalDateTime.now()));
+    }
+
+    // One event per aggregate in a single insert; same transaction rule as record
+    public void recordAll(OutboxEvent.Type type, List<String> aggregateIds) {
+        LocalDateTime now = LocalDateTime.now();
+        mongoTemplate.insertAll(aggregateIds.stream()
+                .map(aggregateId -> new OutboxEvent(type, aggregateId, now))
+                .collect(Collectors.toList()));
+    }
+
+    // Called after commit so fresh events go out without waiting for the next poll
+    public void dispatchSoon() {
+        kicker.execute(this::dispatchPending);
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.poll-interval}")
+    public void dispatchPending() {
+        int claimed;
+        do {
+            claimed = dispatchBatch();
+        } while (claimed == batchSize);
+    }
+
+    private int dispatchBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        Query dueQuery = Query.query(Criteria.where("status").is(OutboxEvent.Status.PENDING)
+                .and("nextAttemptAt").lte(now))
+                .with(Sort.by("createdAt"))
+                .limit(batchSize);
+        dueQuery.fields().include("id");
+        List<String> dueIds = mongoTemplate.find(dueQuery, OutboxEvent.class).stream()
+                .map(OutboxEvent::getId)
+                .collect(Collectors.toList());
+        if (dueIds.isEmpty()) {
+            return 0;
+        }
+
+        // Claim by pushing nextAttemptAt out by the lease; if this node dies mid-batch the
+        // events become due again once the lease runs out
+        String claimToken = dispatcherId + ":" + UUID.randomUUID();
+        mongoTemplate.updateMulti(
+                Query.query(Criteria.where("id").in(dueIds)
+                        .and("status").is(OutboxEvent.Status.PENDING)
+                        .and("nextAttemptAt").lte(now)),
+                new Update().set("nextAttemptAt", now.plus(Duration.ofMillis(claimLease)))
+                        .set("claimedBy", claimToken),
+                OutboxEvent.class);
+        List<OutboxEvent> events = mongoTemplate.find(
+                Query.query(Criteria.where("claimedBy").is(claimToken)).with(Sort.by("createdAt")),
+                OutboxEvent.class);
+
+        BulkOperations results = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, OutboxEvent.class);
+        for (OutboxEvent event : events) {
+            Query claimedEvent = Query.query(Criteria.where("id").is(event.getId()).and("claimedBy").is(claimToken));
+            try {
+                handle(event);
+                results.updateOne(claimedEvent, new Update()
+                        .set("status", OutboxEvent.Status.DISPATCHED)
+                        .set("dispatchedAt", LocalDateTime.now())
+                        .inc("attempts", 1)
+                        .unset("claimedBy"));
+            } catch (RuntimeException e) {
+                int attempts = event.getAttempts() + 1;
+                Update failure = new Update()
+                        .set("attempts", attempts)
+                        .set("lastError", e.getMessage())
+                        .unset("claimedBy");
+                if (attempts >= maxAttempts) {
+                    System.err.println("Giving up on outbox event " + event.getId() + ": " + e.getMessage());
+                    failure.set("status", OutboxEvent.Status.FAILED);
+                } else {
+                    // Linear backoff is plenty for the handful of retries an event gets
+                    failure.set("nextAttemptAt", LocalDateTime.now().plus(Duration.ofMillis(retryDelay * attempts)));
+                }
+                results.updateOne(claimedEvent, failure);
+            }
+        }
+        if (!events.isEmpty()) {
+            results.execute();
+        }
+        return dueIds.size();
+    }
+
+    // All handlers are idempotent: a redelivered event finds the work already done
+    private void handle(OutboxEvent event) {
+        switch (event.getType()) {
+            case BOOKING_CONFIRMATION:
+                try {
+                    bookingService.confirmBooking(event.getAggregateId());
+                } catch (SeatUnavailableException | InvalidStateTransitionException e) {
+                    // Retrying cannot help; the customer gets their money back instead
+                    paymentService.refundUnconfirmedBooking(event.getAggregateId(), e.getMessage());
+                }
+                break;
+            case TICKET_ISSUANCE:
+                try {
+                    ticketService.generateTicket(event.getAggregateId());
+                } catch (IllegalArgumentException e) {
+                    // No ticket for a booking whose payment is being refunded
+                    if (!paymentService.isRefunding(event.getAggregateId())) {
+                        throw e;
+                    }
+                }
+                break;
+            case PAYMENT_REFUND:
+                paymentService.refundPayment(event.getAggregateId());
+                break;
+            default:
+                throw new IllegalStateException("Unknown outbox event type " + event.getType());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        kicker.shutdownNow();
+    }
+}
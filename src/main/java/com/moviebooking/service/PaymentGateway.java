@@ -0,0 +1,55 @@
+package com.moviebooking.service;
+
+// Card processor behind PaymentService. Implementations only charge the card; timeouts,
+// concurrency limits and circuit breaking are applied by PaymentGatewayClient.
+public interface PaymentGateway {
+
+    // Exchanges the card details for a token that later charges, including retries, can use;
+    // the card number itself is never stored
+    String tokenize(String cardNumber, String cardHolderName);
+
+    // Must be idempotent per transactionId: a call that timed out may already have charged the
+    // card, so a retry under the same transactionId returns that charge's result instead of
+    // charging again, e.g. by passing transactionId as the processor's idempotency key
+    Result charge(String transactionId, Double amount, String cardToken);
+
+    // Returns a charge made under transactionId; must be safe to repeat for the same transaction
+    Result refund(String transactionId, Double amount);
+
+    class Result {
+        private final boolean success;
+        private final boolean retryable;
+        private final String failureReason;
+
+        public Result(boolean success, boolean retryable, String failureReason) {
+            this.success = success;
+            this.retryable = retryable;
+            this.failureReason = failureReason;
+        }
+
+        public static Result approved() {
+            return new Result(true, false, null);
+        }
+
+        public static Result declined(String failureReason) {
+            return new Result(false, false, failureReason);
+        }
+
+        // Transient failure; the same charge may succeed if tried again later
+        public static Result retryable(String failureReason) {
+            return new Result(false, true, failureReason);
+        }
+
+        public boolean isSuccess() {
+            return success;
+        }
+
+        public boolean isRetryable() {
+            return retryable;
+        }
+
+        public String getFailureReason() {
+            return failureReason;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.moviebooking.service;
+
+import com.moviebooking.exception.ServiceUnavailableException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Calls the PaymentGateway through a bulkhead, a per-call timeout and a circuit breaker, so a
+// slow or failing gateway makes payments fail fast with a 503 instead of tying up every thread.
+// Declines are normal answers; only errors, timeouts and rejections count against the breaker.
+@Component
+public class PaymentGatewayClient {
+
+    @Autowired
+    private PaymentGateway paymentGateway;
+
+    @Value("${payment.gateway-timeout}")
+    private Long gatewayTimeout;
+
+    @Value("${payment.gateway-max-concurrent}")
+    private Integer maxConcurrentCalls;
+
+    @Value("${payment.gateway-permit-wait}")
+    private Long permitWait;
+
+    @Value("${payment.circuit-breaker.window-size}")
+    private Integer windowSize;
+
+    @Value("${payment.circuit-breaker.minimum-calls}")
+    private Integer minimumCalls;
+
+    @Value("${payment.circuit-breaker.failure-rate-threshold}")
+    private Integer failureRateThreshold;
+
+    @Value("${payment.circuit-breaker.open-duration}")
+    private Long openDuration;
+
+    private Semaphore bulkhead;
+
+    private CircuitBreaker circuitBreaker;
+
+    private ThreadPoolExecutor callExecutor;
+
+    @PostConstruct
+    public void init() {
+        bulkhead = new Semaphore(maxConcurrentCalls);
+        circuitBreaker = new CircuitBreaker(windowSize, minimumCalls, failureRateThreshold, openDuration);
+
+        // Calls that outlive their timeout keep their thread until they return; the extra headroom
+        // absorbs those, and anything beyond it is rejected rather than queued
+        AtomicInteger threadNumber = new AtomicInteger();
+        callExecutor = new ThreadPoolExecutor(maxConcurrentCalls, maxConcurrentCalls * 2, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "payment-gateway-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    // Local to the gateway integration, so it is not guarded like charges are
+    public String tokenize(String cardNumber, String cardHolderName) {
+        return paymentGateway.tokenize(cardNumber, cardHolderName);
+    }
+
+    public PaymentGateway.Result charge(String transactionId, Double amount, String cardToken) {
+        return guarded(() -> paymentGateway.charge(transactionId, amount, cardToken));
+    }
+
+    // Refunds share the charge path's limits: a struggling gateway should not get refund traffic either
+    public PaymentGateway.Result refund(String transactionId, Double amount) {
+        return guarded(() -> paymentGateway.refund(transactionId, amount));
+    }
+
+    private PaymentGateway.Result guarded(Callable<PaymentGateway.Result> gatewayCall) {
+        if (!acquirePermit()) {
+            throw new ServiceUnavailableException("Payment gateway is busy, please try again shortly");
+        }
+        try {
+            if (!circuitBreaker.tryAcquire()) {
+                throw new ServiceUnavailableException("Payment gateway is unavailable, please try again shortly");
+            }
+            return call(gatewayCall);
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("circuitState", circuitBreaker.getState());
+        stats.put("failureRate", circuitBreaker.getFailureRate());
+        stats.put("inFlight", maxConcurrentCalls - bulkhead.availablePermits());
+        stats.put("maxConcurrent", maxConcurrentCalls);
+        stats.put("activeGatewayThreads", callExecutor.getActiveCount());
+        return stats;
+    }
+
+    private PaymentGateway.Result call(Callable<PaymentGateway.Result> gatewayCall) {
+        Future<PaymentGateway.Result> future;
+        try {
+            future = callExecutor.submit(gatewayCall);
+        } catch (RejectedExecutionException e) {
+            circuitBreaker.onFailure();
+            throw new ServiceUnavailableException("Payment gateway is busy, please try again shortly");
+        }
+
+        try {
+            PaymentGateway.Result result = future.get(gatewayTimeout, TimeUnit.MILLISECONDS);
+            circuitBreaker.onSuccess();
+            return result;
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            circuitBreaker.onFailure();
+            throw new ServiceUnavailableException("Payment gateway timed out, please try again shortly");
+        } catch (ExecutionException e) {
+            circuitBreaker.onFailure();
+            throw new ServiceUnavailableException("Payment gateway error, please try again shortly");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            circuitBreaker.onFailure();
+            throw new ServiceUnavailableException("Payment was interrupted, please try again shortly");
+        }
+    }
+
+    private boolean acquirePermit() {
+        try {
+            return bulkhead.tryAcquire(permitWait, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        callExecutor.shutdownNow();
+    }
+}
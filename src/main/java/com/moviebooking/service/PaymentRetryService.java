@@ -0,0 +1,72 @@
+package com.moviebooking.service;
+
+import com.moviebooking.model.Payment;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Service
+public class PaymentRetryService {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private ThreadPoolExecutor paymentExecutor;
+
+    @Value("${payment.retry.batch-size}")
+    private Integer batchSize;
+
+    @Value("${payment.retry.claim-lease}")
+    private Long claimLease;
+
+    // Picks up RETRYING payments whose nextAttemptAt has passed, via the (status, nextAttemptAt)
+    // index, and runs them on the payment worker pool alongside new payments
+    @Scheduled(fixedDelayString = "${payment.retry.poll-interval}")
+    public void retryDuePayments() {
+        for (int i = 0; i < batchSize; i++) {
+            // Only claim what the pool can take right now
+            if (paymentExecutor.getQueue().remainingCapacity() == 0) {
+                return;
+            }
+            Payment payment = claimDuePayment();
+            if (payment == null) {
+                return;
+            }
+            try {
+                paymentExecutor.execute(() -> paymentService.retryPayment(payment));
+            } catch (RejectedExecutionException e) {
+                // The claim lease runs out and the payment becomes due again
+                return;
+            }
+        }
+    }
+
+    // Pushing nextAttemptAt out by the lease is the claim: no other node picks the payment up,
+    // and if this node dies before finishing it is retried once the lease has passed
+    private Payment claimDuePayment() {
+        LocalDateTime now = LocalDateTime.now();
+        return mongoTemplate.findAndModify(
+                Query.query(Criteria.where("status").is(Payment.PaymentStatus.RETRYING)
+                        .and("nextAttemptAt").lte(now))
+                        .with(Sort.by("nextAttemptAt")),
+                new Update().set("nextAttemptAt", now.plus(Duration.ofMillis(claimLease))),
+                FindAndModifyOptions.options().returnNew(true),
+                Payment.class);
+    }
+}
@@ -1,17 +1,35 @@
 package com.moviebooking.service;
 
+import com.mongodb.MongoException;
 import com.moviebooking.dto.payment.PaymentRequest;
 import com.moviebooking.dto.payment.PaymentResponse;
 import com.moviebooking.exception.ResourceNotFoundException;
+import com.moviebooking.exception.ServiceUnavailableException;
 import com.moviebooking.model.Booking;
+import com.moviebooking.model.OutboxEvent;
 import com.moviebooking.model.Payment;
 import com.moviebooking.repository.PaymentRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @Service
 public class PaymentService {
@@ -23,9 +41,98 @@ public class PaymentService {
     private BookingService bookingService;
 
     @Autowired
-    private TicketService ticketService;
+    private OutboxService outboxService;
 
-    public PaymentResponse processPayment(String bookingId, PaymentRequest paymentRequest) {
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private IdGenerator idGenerator;
+
+    @Autowired
+    private ThreadPoolExecutor paymentExecutor;
+
+    @Autowired
+    private PaymentGatewayClient paymentGatewayClient;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private VelocityCheckService velocityCheckService;
+
+    @Autowired
+    private ShowtimeService showtimeService;
+
+    // A payment the gateway may still be charging; only these statuses can move to a result
+    private static final List<Payment.PaymentStatus> IN_FLIGHT = List.of(
+            Payment.PaymentStatus.PENDING, Payment.PaymentStatus.RETRYING);
+
+    // A charge that completed for an attempt that is still in flight, or that something else
+    // already stopped, e.g. a showtime cancellation
+    private static final List<Payment.PaymentStatus> CHARGE_UNRECORDED = List.of(
+            Payment.PaymentStatus.PENDING, Payment.PaymentStatus.RETRYING, Payment.PaymentStatus.FAILED);
+
+    private static final int TRANSACTION_ATTEMPTS = 3;
+
+    @Value("${payment.retry.max-attempts}")
+    private Integer maxRetryAttempts;
+
+    @Value("${payment.retry.base-delay}")
+    private Long retryBaseDelay;
+
+    @Value("${payment.retry.max-delay}")
+    private Long retryMaxDelay;
+
+    public PaymentResponse processPayment(String bookingId, PaymentRequest paymentRequest, String userKey, String clientIp) {
+        screenPayment(paymentRequest, userKey, clientIp);
+        Payment payment = recordPendingPayment(bookingId, paymentRequest);
+        try {
+            return new PaymentResponse(completePayment(payment));
+        } catch (RuntimeException e) {
+            System.err.println("Failed to process payment " + payment.getId() + ": " + e.getMessage());
+            return new PaymentResponse(interruptAttempt(payment));
+        }
+    }
+
+    // Async mode: records a PENDING payment and hands it to the bounded payment worker pool.
+    // Clients poll the payment status by booking until it is SUCCESS or FAILED; transient
+    // gateway failures show up as RETRYING in between.
+    public PaymentResponse submitPayment(String bookingId, PaymentRequest paymentRequest, String userKey, String clientIp) {
+        screenPayment(paymentRequest, userKey, clientIp);
+        Payment pendingPayment = recordPendingPayment(bookingId, paymentRequest);
+
+        try {
+            paymentExecutor.execute(() -> processQueuedPayment(pendingPayment));
+        } catch (RejectedExecutionException e) {
+            failInFlight(pendingPayment, "Payment queue is full");
+            throw new ServiceUnavailableException("Too many payments in progress, please try again shortly");
+        }
+
+        return new PaymentResponse(pendingPayment);
+    }
+
+    // First stage of every payment: in-memory velocity limits, so card-testing bursts are turned
+    // away before they cost any database writes or gateway calls
+    private void screenPayment(PaymentRequest paymentRequest, String userKey, String clientIp) {
+        velocityCheckService.check(userKey, paymentRequest.getCardNumber(), paymentRequest.getCardHolderName(), clientIp);
+    }
+
+    // The PENDING row is written under the unique bookingId index before the card is charged, so
+    // of two concurrent payments for one booking only one ever reaches the gateway
+    private Payment recordPendingPayment(String bookingId, PaymentRequest paymentRequest) {
+        Payment payment = preparePayment(bookingId, paymentRequest);
+        if (payment.getId() == null) {
+            payment.setStatus(Payment.PaymentStatus.PENDING);
+            payment = insertPayment(payment);
+        }
+
+        // Keep the seats held while the payment is in flight or waits in the queue
+        bookingService.extendHold(bookingId);
+        return payment;
+    }
+
+    private Payment preparePayment(String bookingId, PaymentRequest paymentRequest) {
         // Get the booking
         Booking booking = bookingService.getBookingById(bookingId);
 
@@ -34,105 +141,348 @@ public class PaymentService {
             throw new IllegalArgumentException("Booking is not in pending payment status");
         }
 
-        // Check if payment already exists for this booking
+        // The sweeper may not have released this hold yet, but its seats are no longer guaranteed
+        if (booking.isHoldExpired()) {
+            throw new IllegalArgumentException("Booking hold has expired, please book again");
+        }
+
+        // A showtime being cancelled may not have reached this booking yet
+        showtimeService.getBookableShowtime(booking.getShowtimeId());
+
+        // A failed payment can be retried with new card details; anything else is final or in flight
         Optional<Payment> existingPayment = paymentRepository.findByBookingId(bookingId);
         if (existingPayment.isPresent()) {
-            throw new IllegalArgumentException("Payment already processed for this booking");
+            if (existingPayment.get().getStatus() != Payment.PaymentStatus.FAILED) {
+                throw new IllegalArgumentException("Payment already processed for this booking");
+            }
+            return reopenFailedPayment(existingPayment.get(), booking, paymentRequest);
         }
 
         // Create payment record
         Payment payment = new Payment(bookingId, booking.getTotalPrice(),
                 paymentRequest.getCardNumber(), paymentRequest.getCardHolderName());
+        payment.setTransactionId(idGenerator.nextTransactionId());
+        payment.setCardToken(paymentGatewayClient.tokenize(paymentRequest.getCardNumber(), paymentRequest.getCardHolderName()));
+        return payment;
+    }
 
-        // Simulate payment processing
-        PaymentSimulationResult result = simulatePayment(paymentRequest.getCardNumber());
+    // Moves the FAILED payment back to PENDING with a fresh transaction id; conditional on the
+    // status so two concurrent retries cannot both charge the card
+    private Payment reopenFailedPayment(Payment failedPayment, Booking booking, PaymentRequest paymentRequest) {
+        Payment details = new Payment(booking.getId(), booking.getTotalPrice(),
+                paymentRequest.getCardNumber(), paymentRequest.getCardHolderName());
+        Payment payment = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("id").is(failedPayment.getId())
+                        .and("status").is(Payment.PaymentStatus.FAILED)),
+                new Update().set("status", Payment.PaymentStatus.PENDING)
+                        .set("amount", details.getAmount())
+                        .set("cardNumber", details.getCardNumber())
+                        .set("cardHolderName", details.getCardHolderName())
+                        .set("cardToken", paymentGatewayClient.tokenize(paymentRequest.getCardNumber(), paymentRequest.getCardHolderName()))
+                        .set("transactionId", idGenerator.nextTransactionId())
+                        .set("processedAt", details.getProcessedAt())
+                        .set("attempts", 0)
+                        .unset("failureReason")
+                        .unset("nextAttemptAt"),
+                FindAndModifyOptions.options().returnNew(true),
+                Payment.class);
+        if (payment == null) {
+            throw new IllegalArgumentException("Payment for this booking is already being retried");
+        }
+        return payment;
+    }
 
-        payment.setStatus(result.isSuccess() ? Payment.PaymentStatus.SUCCESS : Payment.PaymentStatus.FAILED);
-        payment.setFailureReason(result.getFailureReason());
-        payment.setProcessedAt(LocalDateTime.now());
+    private Payment completePayment(Payment payment) {
+        PaymentGateway.Result result;
+        try {
+            result = paymentGatewayClient.charge(payment.getTransactionId(), payment.getAmount(), payment.getCardToken());
+        } catch (ServiceUnavailableException e) {
+            // Gateway down, slow or shedding load; not the card's fault, so try again later
+            result = PaymentGateway.Result.retryable(e.getMessage());
+        }
 
-        // Save payment
-        payment = paymentRepository.save(payment);
+        LocalDateTime now = LocalDateTime.now();
+        Update outcome = new Update()
+                .inc("attempts", 1)
+                .set("processedAt", now)
+                .set("updatedAt", now);
+        if (result.getFailureReason() != null) {
+            outcome.set("failureReason", result.getFailureReason());
+        } else {
+            outcome.unset("failureReason");
+        }
 
-        // Update booking status based on payment result
-        if (result.isSuccess()) {
-            bookingService.updateBookingStatus(bookingId, Booking.BookingStatus.CONFIRMED);
-            // Generate ticket automatically upon successful payment
-            ticketService.handlePaymentSuccess(bookingId);
+        if (!result.isSuccess()) {
+            if (result.isRetryable() && payment.getAttempts() + 1 < maxRetryAttempts) {
+                outcome.set("status", Payment.PaymentStatus.RETRYING)
+                        .set("nextAttemptAt", now.plus(Duration.ofMillis(retryDelay(payment.getAttempts() + 1))));
+                Payment retrying = updateInFlight(payment, outcome);
+                if (retrying == null) {
+                    return currentPayment(payment);
+                }
+                bookingService.extendHold(retrying.getBookingId());
+                return retrying;
+            }
+            outcome.set("status", Payment.PaymentStatus.FAILED).unset("nextAttemptAt");
+            Payment failed = updateInFlight(payment, outcome);
+            return failed != null ? failed : currentPayment(payment);
         }
+        outcome.set("status", Payment.PaymentStatus.SUCCESS).unset("nextAttemptAt");
 
-        return new PaymentResponse(payment);
+        // The payment, the hold extension and the follow-up events commit together, so a crash
+        // can no longer leave a successful payment without its booking confirmation and ticket
+        Payment chargedPayment = payment;
+        payment = inTransaction(() -> {
+            // SUCCESS is only recorded for a booking that is still held. One whose hold lapsed
+            // or that was cancelled while the gateway was charging gets its money back instead.
+            if (!bookingService.extendHold(chargedPayment.getBookingId())) {
+                return requestRefund(chargedPayment, CHARGE_UNRECORDED,
+                        "Booking was no longer held when the charge completed");
+            }
+            Payment saved = updateInFlight(chargedPayment, outcome);
+            if (saved == null) {
+                // Stopped elsewhere while the gateway was charging; the money went through
+                return requestRefund(chargedPayment, CHARGE_UNRECORDED, "Charged after the payment was stopped");
+            }
+            outboxService.record(OutboxEvent.Type.BOOKING_CONFIRMATION, saved.getBookingId());
+            outboxService.record(OutboxEvent.Type.TICKET_ISSUANCE, saved.getBookingId());
+            return saved;
+        });
+        outboxService.dispatchSoon();
+
+        return payment != null ? payment : currentPayment(chargedPayment);
     }
 
-    public PaymentResponse getPaymentByBookingId(String bookingId) {
-        Payment payment = paymentRepository.findByBookingId(bookingId)
-                .orElseThrow(() -> new ResourceNotFoundException("Payment", "bookingId", bookingId));
-        return new PaymentResponse(payment);
+    // The hold extension can collide with the expiry sweeper's update of the same booking; Mongo
+    // aborts such a transaction as transient, and running it again sees the sweeper's result
+    private <T> T inTransaction(Supplier<T> work) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> work.get());
+            } catch (DataAccessException e) {
+                if (attempt >= TRANSACTION_ATTEMPTS || !isTransientTransactionError(e)) {
+                    throw e;
+                }
+            }
+        }
     }
 
-    public Payment getPaymentById(String id) {
-        return paymentRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Payment", "id", id));
+    private static boolean isTransientTransactionError(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoException
+                    && ((MongoException) cause).hasErrorLabel(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL)) {
+                return true;
+            }
+        }
+        return false;
     }
 
-    public List<Payment> getAllPayments() {
-        return paymentRepository.findAll();
+    // Applies a result only while the payment is still in flight with this attempt's transaction
+    // id; returns null when something else settled it in the meantime
+    private Payment updateInFlight(Payment payment, Update update) {
+        return mongoTemplate.findAndModify(
+                Query.query(Criteria.where("id").is(payment.getId())
+                        .and("status").in(IN_FLIGHT)
+                        .and("transactionId").is(payment.getTransactionId())),
+                update,
+                FindAndModifyOptions.options().returnNew(true),
+                Payment.class);
     }
 
-    public List<Payment> getPaymentsByStatus(Payment.PaymentStatus status) {
-        return paymentRepository.findByStatus(status);
+    private void failInFlight(Payment payment, String failureReason) {
+        LocalDateTime now = LocalDateTime.now();
+        updateInFlight(payment, new Update()
+                .set("status", Payment.PaymentStatus.FAILED)
+                .set("failureReason", failureReason)
+                .set("updatedAt", now)
+                .unset("nextAttemptAt"));
     }
 
-    public List<Payment> getPaymentsByDateRange(LocalDateTime start, LocalDateTime end) {
-        return paymentRepository.findByProcessedAtBetween(start, end);
+    private Payment currentPayment(Payment payment) {
+        return paymentRepository.findById(payment.getId()).orElse(payment);
+    }
+
+    // Marks this attempt's charge for refund and queues the refund in the same transaction;
+    // the caller must be inside one. Returns null if the payment is no longer in the expected
+    // status or has moved on to another transaction.
+    private Payment requestRefund(Payment payment, List<Payment.PaymentStatus> expected, String reason) {
+        Payment refunding = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("id").is(payment.getId())
+                        .and("status").in(expected)
+                        .and("transactionId").is(payment.getTransactionId())),
+                new Update().set("status", Payment.PaymentStatus.REFUND_PENDING)
+                        .set("failureReason", reason)
+                        .set("updatedAt", LocalDateTime.now())
+                        .unset("nextAttemptAt"),
+                FindAndModifyOptions.options().returnNew(true),
+                Payment.class);
+        if (refunding == null) {
+            System.err.println("Could not queue refund for payment " + payment.getId()
+                    + " transaction " + payment.getTransactionId());
+            return null;
+        }
+        outboxService.record(OutboxEvent.Type.PAYMENT_REFUND, refunding.getId());
+        return refunding;
     }
 
-    private PaymentSimulationResult simulatePayment(String cardNumber) {
-        // Simulation Logic:
-        // - Cards starting with '4' -> SUCCESS (Visa simulation)
-        // - Cards starting with '5' -> SUCCESS (Mastercard simulation)
-        // - Cards starting with '3' -> SUCCESS (Amex simulation)
-        // - Cards starting with '2' -> FAILED (Insufficient funds)
-        // - Cards starting with '1' -> FAILED (Invalid card)
-        // - All others -> FAILED (Card declined)
+    // Called when a paid booking turns out not to be confirmable: its seats were resold after the
+    // hold lapsed, or it was cancelled before the confirmation went out
+    public void refundUnconfirmedBooking(String bookingId, String reason) {
+        Booking booking = bookingService.getBookingById(bookingId);
+        if (booking.getStatus() == Booking.BookingStatus.CONFIRMED) {
+            return;
+        }
+        if (booking.getStatus() == Booking.BookingStatus.PENDING_PAYMENT) {
+            throw new IllegalStateException("Booking " + bookingId + " is still awaiting confirmation");
+        }
+        Optional<Payment> payment = paymentRepository.findByBookingId(bookingId)
+                .filter(existing -> existing.getStatus() == Payment.PaymentStatus.SUCCESS);
+        if (payment.isEmpty()) {
+            return;
+        }
+        inTransaction(() -> requestRefund(payment.get(), List.of(Payment.PaymentStatus.SUCCESS),
+                "Booking could not be confirmed: " + reason));
+        outboxService.dispatchSoon();
+    }
 
-        if (cardNumber == null || cardNumber.length() < 1) {
-            return new PaymentSimulationResult(false, "Invalid card number");
+    // Bulk form of requestRefund for a showtime cancellation. The successful payments of these
+    // bookings move to REFUND_PENDING together with one PAYMENT_REFUND event each, and the outbox
+    // worker makes the gateway refunds. Returns how many refunds were queued.
+    public long requestRefunds(List<String> bookingIds, String reason) {
+        long queued = inTransaction(() -> {
+            Query successQuery = Query.query(Criteria.where("bookingId").in(bookingIds)
+                    .and("status").is(Payment.PaymentStatus.SUCCESS));
+            successQuery.fields().include("id");
+            List<String> paymentIds = mongoTemplate.find(successQuery, Payment.class).stream()
+                    .map(Payment::getId)
+                    .collect(Collectors.toList());
+            if (paymentIds.isEmpty()) {
+                return 0L;
+            }
+            // Same snapshot as the find; a payment changed by someone else aborts the transaction
+            long refunding = mongoTemplate.updateMulti(
+                    Query.query(Criteria.where("id").in(paymentIds)
+                            .and("status").is(Payment.PaymentStatus.SUCCESS)),
+                    new Update().set("status", Payment.PaymentStatus.REFUND_PENDING)
+                            .set("failureReason", reason)
+                            .set("updatedAt", LocalDateTime.now()),
+                    Payment.class).getModifiedCount();
+            outboxService.recordAll(OutboxEvent.Type.PAYMENT_REFUND, paymentIds);
+            return refunding;
+        });
+        if (queued > 0) {
+            outboxService.dispatchSoon();
         }
+        return queued;
+    }
 
-        char firstDigit = cardNumber.charAt(0);
+    public boolean isRefunding(String bookingId) {
+        return paymentRepository.findByBookingId(bookingId)
+                .map(payment -> payment.getStatus() == Payment.PaymentStatus.REFUND_PENDING
+                        || payment.getStatus() == Payment.PaymentStatus.REFUNDED)
+                .orElse(false);
+    }
 
-        switch (firstDigit) {
-            case '4':
-                return new PaymentSimulationResult(true, null);
-            case '5':
-                return new PaymentSimulationResult(true, null);
-            case '3':
-                return new PaymentSimulationResult(true, null);
-            case '2':
-                return new PaymentSimulationResult(false, "Insufficient funds");
-            case '1':
-                return new PaymentSimulationResult(false, "Invalid card number");
-            default:
-                return new PaymentSimulationResult(false, "Card declined");
+    // Outbox handler for PAYMENT_REFUND. Idempotent: a refunded payment is left alone, and the
+    // gateway refunds by transaction id, so a repeated call after a crash is deduplicated there.
+    public void refundPayment(String paymentId) {
+        Payment payment = getPaymentById(paymentId);
+        if (payment.getStatus() != Payment.PaymentStatus.REFUND_PENDING) {
+            return;
+        }
+        PaymentGateway.Result result = paymentGatewayClient.refund(payment.getTransactionId(), payment.getAmount());
+        if (!result.isSuccess()) {
+            throw new IllegalStateException("Refund was declined: " + result.getFailureReason());
         }
+        mongoTemplate.updateFirst(
+                Query.query(Criteria.where("id").is(paymentId)
+                        .and("status").is(Payment.PaymentStatus.REFUND_PENDING)),
+                new Update().set("status", Payment.PaymentStatus.REFUNDED).set("updatedAt", LocalDateTime.now()),
+                Payment.class);
     }
 
-    private static class PaymentSimulationResult {
-        private final boolean success;
-        private final String failureReason;
+    // Exponential backoff with jitter. Half of the delay is fixed so retries never bunch up near
+    // zero; the other half is random so payments that failed together do not retry together.
+    private long retryDelay(int attempts) {
+        long ceiling = Math.min(retryMaxDelay, retryBaseDelay << Math.min(attempts - 1, 20));
+        return ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+    }
 
-        public PaymentSimulationResult(boolean success, String failureReason) {
-            this.success = success;
-            this.failureReason = failureReason;
+    // Called by the retry worker with a RETRYING payment it has claimed
+    public void retryPayment(Payment payment) {
+        // Stop once the booking is no longer waiting for this payment, e.g. it was cancelled
+        if (!bookingService.extendHold(payment.getBookingId())) {
+            failInFlight(payment, "Booking is no longer awaiting payment");
+            return;
         }
+        processQueuedPayment(payment);
+    }
 
-        public boolean isSuccess() {
-            return success;
+    private void processQueuedPayment(Payment payment) {
+        try {
+            // The showtime may have been cancelled while the payment waited in the queue
+            Booking booking = bookingService.getBookingById(payment.getBookingId());
+            if (!showtimeService.getShowtimeById(booking.getShowtimeId()).isActive()) {
+                failInFlight(payment, "Showtime was cancelled");
+                return;
+            }
+            completePayment(payment);
+        } catch (RuntimeException e) {
+            System.err.println("Failed to process payment " + payment.getId() + ": " + e.getMessage());
+            interruptAttempt(payment);
         }
+    }
 
-        public String getFailureReason() {
-            return failureReason;
+    // An attempt that broke off with an error, possibly after the gateway charged the card. charge
+    // is idempotent per transaction id, so the retry worker runs it again to learn the result;
+    // once the attempts are used up the payment fails. Conditional on the stored status, so a
+    // result that was already written stays.
+    private Payment interruptAttempt(Payment payment) {
+        LocalDateTime now = LocalDateTime.now();
+        Update update = new Update()
+                .inc("attempts", 1)
+                .set("failureReason", "Payment processing failed")
+                .set("updatedAt", now);
+        if (payment.getAttempts() + 1 < maxRetryAttempts) {
+            update.set("status", Payment.PaymentStatus.RETRYING)
+                    .set("nextAttemptAt", now.plus(Duration.ofMillis(retryDelay(payment.getAttempts() + 1))));
+        } else {
+            update.set("status", Payment.PaymentStatus.FAILED).unset("nextAttemptAt");
         }
+        Payment interrupted = updateInFlight(payment, update);
+        return interrupted != null ? interrupted : currentPayment(payment);
+    }
+
+    // The unique bookingId index turns a concurrent second payment into a clean rejection
+    private Payment insertPayment(Payment payment) {
+        try {
+            return paymentRepository.insert(payment);
+        } catch (DuplicateKeyException e) {
+            throw new IllegalArgumentException("Payment already processed for this booking");
+        }
+    }
+
+
+    public PaymentResponse getPaymentByBookingId(String bookingId) {
+        Payment payment = paymentRepository.findByBookingId(bookingId)
+                .orElseThrow(() -> new ResourceNotFoundException("Payment", "bookingId", bookingId));
+        return new PaymentResponse(payment);
+    }
+
+    public Payment getPaymentById(String id) {
+        return paymentRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Payment", "id", id));
+    }
+
+    public List<Payment> getAllPayments() {
+        return paymentRepository.findAll();
+    }
+
+    public List<Payment> getPaymentsByStatus(Payment.PaymentStatus status) {
+        return paymentRepository.findByStatus(status);
+    }
+
+    public List<Payment> getPaymentsByDateRange(LocalDateTime start, LocalDateTime end) {
+        return paymentRepository.findByProcessedAtBetween(start, end);
     }
 }
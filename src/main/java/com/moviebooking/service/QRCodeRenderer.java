@@ -0,0 +1,155 @@
+package com.moviebooking.service;
+
+import com.google.zxing.WriterException;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import com.google.zxing.qrcode.encoder.ByteMatrix;
+import com.google.zxing.qrcode.encoder.Encoder;
+
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+// Renders QR codes as 1-bit grayscale PNGs straight from the encoder's module matrix. Each module
+// is scaled by a whole number of pixels as the scanlines are packed, so there is no BitMatrix at
+// full size, no BufferedImage and no ImageIO. The Deflater, CRC and scratch buffers are reused per
+// thread; the only allocation left per image is the returned byte[].
+public final class QRCodeRenderer {
+
+    private static final int QUIET_ZONE = 4; // modules, same as QRCodeWriter
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+    private static final byte FILTER_NONE = 0;
+    private static final byte FILTER_UP = 2;
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private QRCodeRenderer() {}
+
+    // The image is the largest whole-pixel scale of the code that fits in targetSize, never
+    // smaller than one pixel per module
+    public static byte[] renderPng(String data, int targetSize) throws WriterException {
+        ByteMatrix modules = Encoder.encode(data, ErrorCorrectionLevel.L).getMatrix();
+        int codeSize = modules.getWidth() + 2 * QUIET_ZONE;
+        int scale = Math.max(1, targetSize / codeSize);
+        int size = codeSize * scale;
+        int rowBytes = (size + 7) >>> 3;
+
+        Scratch scratch = SCRATCH.get();
+        byte[] raw = scratch.raw(size * (rowBytes + 1));
+        int pos = 0;
+        for (int moduleRow = 0; moduleRow < codeSize; moduleRow++) {
+            // The first pixel row of a module row carries the bits; the rest repeat it, and the
+            // Up filter turns each repeat into zeros that deflate to almost nothing
+            raw[pos++] = FILTER_NONE;
+            packRow(modules, moduleRow - QUIET_ZONE, scale, raw, pos, rowBytes);
+            pos += rowBytes;
+            for (int repeat = 1; repeat < scale; repeat++) {
+                raw[pos++] = FILTER_UP;
+                Arrays.fill(raw, pos, pos + rowBytes, (byte) 0);
+                pos += rowBytes;
+            }
+        }
+
+        Deflater deflater = scratch.deflater;
+        deflater.reset();
+        deflater.setInput(raw, 0, pos);
+        deflater.finish();
+        byte[] compressed = scratch.compressed(pos / 4 + 64);
+        int compressedLength = 0;
+        while (!deflater.finished()) {
+            if (compressedLength == compressed.length) {
+                compressed = scratch.grow(compressed.length * 2, compressedLength);
+            }
+            compressedLength += deflater.deflate(compressed, compressedLength, compressed.length - compressedLength);
+        }
+
+        byte[] png = new byte[SIGNATURE.length + 25 + 12 + compressedLength + 12];
+        System.arraycopy(SIGNATURE, 0, png, 0, SIGNATURE.length);
+        int offset = SIGNATURE.length;
+
+        byte[] header = scratch.header;
+        writeInt(header, 0, size);
+        writeInt(header, 4, size);
+        header[8] = 1;  // bit depth
+        header[9] = 0;  // grayscale
+        header[10] = 0; // deflate
+        header[11] = 0; // adaptive filtering
+        header[12] = 0; // no interlace
+        offset = writeChunk(png, offset, 'I', 'H', 'D', 'R', header, 13, scratch.crc);
+        offset = writeChunk(png, offset, 'I', 'D', 'A', 'T', compressed, compressedLength, scratch.crc);
+        writeChunk(png, offset, 'I', 'E', 'N', 'D', header, 0, scratch.crc);
+        return png;
+    }
+
+    // Packs one pixel row, most significant bit first: 1 is white, 0 a dark module
+    private static void packRow(ByteMatrix modules, int y, int scale, byte[] raw, int pos, int rowBytes) {
+        Arrays.fill(raw, pos, pos + rowBytes, (byte) 0xff);
+        if (y < 0 || y >= modules.getHeight()) {
+            return;
+        }
+        byte[] row = modules.getArray()[y];
+        int x = QUIET_ZONE * scale;
+        for (byte module : row) {
+            if (module == 1) {
+                for (int end = x + scale; x < end; x++) {
+                    raw[pos + (x >>> 3)] &= (byte) ~(0x80 >>> (x & 7));
+                }
+            } else {
+                x += scale;
+            }
+        }
+    }
+
+    private static int writeChunk(byte[] png, int offset, char a, char b, char c, char d,
+                                  byte[] data, int length, CRC32 crc) {
+        writeInt(png, offset, length);
+        int typeOffset = offset + 4;
+        png[typeOffset] = (byte) a;
+        png[typeOffset + 1] = (byte) b;
+        png[typeOffset + 2] = (byte) c;
+        png[typeOffset + 3] = (byte) d;
+        System.arraycopy(data, 0, png, typeOffset + 4, length);
+
+        crc.reset();
+        crc.update(png, typeOffset, 4 + length);
+        writeInt(png, typeOffset + 4 + length, (int) crc.getValue());
+        return typeOffset + 4 + length + 4;
+    }
+
+    private static void writeInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+
+    // Per-thread buffers that only ever grow. The Deflater's native memory lives as long as the
+    // thread, which for request and payment workers is the life of the application.
+    private static final class Scratch {
+        private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        private final CRC32 crc = new CRC32();
+        private final byte[] header = new byte[13];
+        private byte[] raw = new byte[0];
+        private byte[] compressed = new byte[0];
+
+        private byte[] raw(int length) {
+            if (raw.length < length) {
+                raw = new byte[length];
+            }
+            return raw;
+        }
+
+        private byte[] compressed(int length) {
+            if (compressed.length < length) {
+                compressed = new byte[length];
+            }
+            return compressed;
+        }
+
+        private byte[] grow(int length, int keep) {
+            byte[] grown = new byte[length];
+            System.arraycopy(compressed, 0, grown, 0, keep);
+            compressed = grown;
+            return grown;
+        }
+    }
+}
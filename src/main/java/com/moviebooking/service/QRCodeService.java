@@ -1,34 +1,103 @@
 package com.moviebooking.service;
 
-import com.google.zxing.BarcodeFormat;
 import com.google.zxing.WriterException;
-import com.google.zxing.client.j2se.MatrixToImageWriter;
-import com.google.zxing.common.BitMatrix;
-import com.google.zxing.qrcode.QRCodeWriter;
+import com.moviebooking.security.HmacSigner;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 @Service
 public class QRCodeService {
 
-    public String generateQRCodeBase64(String data) throws WriterException, IOException {
+    private static final String PAYLOAD_VERSION = "t1";
+
+    @Value("${ticket.qr-secret}")
+    private String qrSecret;
+
+    @Value("${ticket.qr-cache-size}")
+    private Integer qrCacheSize;
+
+    private HmacSigner signer;
+
+    // Encoded PNGs by payload, most recently used last. A ticket's payload never changes, so
+    // entries never go stale; people reopening their ticket before the show hit this.
+    private final Map<String, byte[]> pngCache = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+            return size() > qrCacheSize;
+        }
+    };
+
+    @PostConstruct
+    public void init() {
+        signer = new HmacSigner(qrSecret);
+    }
+
+    // Signed "t1|ticketId|showtimeId|seats|expiresAt" payload. Gates can check a ticket from the
+    // signature alone, and nothing in it can be guessed or altered without the secret.
+    public String createTicketPayload(String ticketId, String showtimeId, List<String> seatNumbers, LocalDateTime expiresAt) {
+        return signer.sign(PAYLOAD_VERSION + "|" + ticketId + "|" + showtimeId + "|"
+                + String.join(",", seatNumbers) + "|" + expiresAt.atZone(ZoneId.systemDefault()).toEpochSecond());
+    }
+
+    // Returns the verified contents, or null if the payload is not a validly signed ticket
+    public TicketPayload verifyTicketPayload(String qrCodeData) {
+        String payload = signer.verify(qrCodeData);
+        if (payload == null) {
+            return null;
+        }
+        String[] parts = payload.split("\\|");
+        if (parts.length != 5 || !PAYLOAD_VERSION.equals(parts[0])) {
+            return null;
+        }
+        try {
+            return new TicketPayload(parts[1], parts[2], Arrays.asList(parts[3].split(",")),
+                    LocalDateTime.ofInstant(Instant.ofEpochSecond(Long.parseLong(parts[4])), ZoneId.systemDefault()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // PNG bytes for a ticket payload, rendered at most once per node while it stays cached
+    public byte[] getQRCodePng(String data) throws WriterException {
+        synchronized (pngCache) {
+            byte[] cached = pngCache.get(data);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        // Rendered outside the lock; two concurrent misses just render the same image twice
+        byte[] png = generateQRCodePng(data, 300, 300);
+        synchronized (pngCache) {
+            pngCache.put(data, png);
+        }
+        return png;
+    }
+
+    public String generateQRCodeBase64(String data) throws WriterException {
         return generateQRCodeBase64(data, 300, 300);
     }
 
-    public String generateQRCodeBase64(String data, int width, int height) throws WriterException, IOException {
-        QRCodeWriter qrCodeWriter = new QRCodeWriter();
-        BitMatrix bitMatrix = qrCodeWriter.encode(data, BarcodeFormat.QR_CODE, width, height);
+    public String generateQRCodeBase64(String data, int width, int height) throws WriterException {
+        return Base64.getEncoder().encodeToString(generateQRCodePng(data, width, height));
+    }
 
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        MatrixToImageWriter.writeToStream(bitMatrix, "PNG", outputStream);
-        
-        byte[] qrCodeBytes = outputStream.toByteArray();
-        return Base64.getEncoder().encodeToString(qrCodeBytes);
+    // Scaled in whole modules to fit the smaller side, so the image may come out a few pixels
+    // under the requested size rather than being resampled to it
+    public byte[] generateQRCodePng(String data, int width, int height) throws WriterException {
+        return QRCodeRenderer.renderPng(data, Math.min(width, height));
     }
 
+    // Format check for tickets issued before signed payloads
     public boolean validateQRCodeData(String qrCodeData) {
         // Basic validation for QR code data format
         if (qrCodeData == null || qrCodeData.isEmpty()) {
@@ -48,4 +117,38 @@ public class QRCodeService {
         String[] parts = qrCodeData.split(":");
         return parts[1]; // booking ID is the second part
     }
+
+    public static class TicketPayload {
+        private final String ticketId;
+        private final String showtimeId;
+        private final List<String> seatNumbers;
+        private final LocalDateTime expiresAt;
+
+        public TicketPayload(String ticketId, String showtimeId, List<String> seatNumbers, LocalDateTime expiresAt) {
+            this.ticketId = ticketId;
+            this.showtimeId = showtimeId;
+            this.seatNumbers = seatNumbers;
+            this.expiresAt = expiresAt;
+        }
+
+        public boolean isExpired() {
+            return expiresAt.isBefore(LocalDateTime.now());
+        }
+
+        public String getTicketId() {
+            return ticketId;
+        }
+
+        public String getShowtimeId() {
+            return showtimeId;
+        }
+
+        public List<String> getSeatNumbers() {
+            return seatNumbers;
+        }
+
+        public LocalDateTime getExpiresAt() {
+            return expiresAt;
+        }
+    }
 }
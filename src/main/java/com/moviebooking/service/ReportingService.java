@@ -21,7 +21,6 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -87,21 +86,17 @@ public class ReportingService {
         List<Showtime> showtimes = showtimeRepository.findByActiveTrue();
         List<OccupancyReportResponse.ShowtimeOccupancy> occupancies = new ArrayList<>();
 
-        for (Showtime showtime : showtimes) {
-            // Get confirmed bookings for this showtime
-            List<Booking> confirmedBookings = bookingRepository.findByShowtimeIdAndStatusIn(
-                    showtime.getId(), 
-                    Arrays.asList(Booking.BookingStatus.CONFIRMED)
-            );
-
-            // Calculate booked seats
-            int bookedSeats = confirmedBookings.stream()
-                    .mapToInt(booking -> booking.getBookedSeatNumbers().size())
-                    .sum();
+        // One lookup for all movie titles instead of one per showtime
+        Map<String, String> movieTitles = movieRepository.findAllById(showtimes.stream()
+                        .map(Showtime::getMovieId)
+                        .distinct()
+                        .collect(Collectors.toList()))
+                .stream()
+                .collect(Collectors.toMap(Movie::getId, Movie::getTitle));
 
-            // Get movie title
-            Movie movie = movieRepository.findById(showtime.getMovieId()).orElse(null);
-            String movieTitle = movie != null ? movie.getTitle() : "Unknown Movie";
+        for (Showtime showtime : showtimes) {
+            // Booked seats come from the showtime's maintained counter, no booking scan needed
+            String movieTitle = movieTitles.getOrDefault(showtime.getMovieId(), "Unknown Movie");
 
             OccupancyReportResponse.ShowtimeOccupancy occupancy = 
                     new OccupancyReportResponse.ShowtimeOccupancy(
@@ -110,7 +105,7 @@ public class ReportingService {
                             showtime.getStartTime(),
                             showtime.getScreenNumber(),
                             showtime.getTotalSeats(),
-                            bookedSeats
+                            showtime.getBookedSeatCount()
                     );
 
             occupancies.add(occupancy);
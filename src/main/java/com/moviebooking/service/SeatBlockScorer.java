@@ -0,0 +1,15 @@
+package com.moviebooking.service;
+
+// Ranks a contiguous block of free seats; lower scores are better
+@FunctionalInterface
+public interface SeatBlockScorer {
+
+    double score(int row, int firstSeat, int partySize, int rows, int seatsInRow);
+
+    // Prefers blocks centred in the row, then rows around the middle of the auditorium
+    SeatBlockScorer CENTER = (row, firstSeat, partySize, rows, seatsInRow) -> {
+        double seatOffset = Math.abs(firstSeat + (partySize - 1) / 2.0 - (seatsInRow - 1) / 2.0) / seatsInRow;
+        double rowOffset = rows > 1 ? Math.abs(row - (rows - 1) / 2.0) / rows : 0;
+        return seatOffset + rowOffset;
+    };
+}
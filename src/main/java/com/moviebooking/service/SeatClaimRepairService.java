@@ -0,0 +1,188 @@
+package com.moviebooking.service;
+
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.moviebooking.model.Booking;
+import com.moviebooking.model.SeatClaim;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.Pair;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Keeps seat_claims in step with the bookings. createBooking inserts the claims before it saves
+// the booking, so a node that dies in between leaves claims that nothing will ever release; and
+// bookings made before claims existed have none, so their seats could be claimed a second time.
+@Service
+public class SeatClaimRepairService {
+
+    private static final String MIGRATIONS = "migrations";
+    private static final String CLAIM_BACKFILL = "seat-claims-backfill";
+
+    // Claims younger than this may belong to a booking that is still being saved
+    private static final Duration REPAIR_GRACE = Duration.ofMinutes(5);
+
+    private static final int BATCH_SIZE = 1000;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private SeatInventoryService seatInventoryService;
+
+    // Removes claims whose booking does not exist or no longer holds its seats
+    @Scheduled(fixedDelayString = "${booking.claim-repair-interval}", initialDelayString = "${booking.claim-repair-interval}")
+    public long repairOrphanedClaims() {
+        LocalDateTime claimedBefore = LocalDateTime.now().minus(REPAIR_GRACE);
+        Query claimQuery = Query.query(claimedBefore(claimedBefore));
+        claimQuery.fields().include("bookingId").include("showtimeId");
+        claimQuery.cursorBatchSize(BATCH_SIZE);
+
+        // bookingId -> showtimeId
+        Map<String, String> batch = new HashMap<>();
+        long removed = 0;
+        try (Stream<SeatClaim> claims = mongoTemplate.stream(claimQuery, SeatClaim.class)) {
+            for (SeatClaim claim : (Iterable<SeatClaim>) claims::iterator) {
+                batch.put(claim.getBookingId(), claim.getShowtimeId());
+                if (batch.size() == BATCH_SIZE) {
+                    removed += removeOrphans(batch, claimedBefore);
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            removed += removeOrphans(batch, claimedBefore);
+        }
+        return removed;
+    }
+
+    // One-off migration: runs on the first start after deploy and is recorded in the migrations
+    // collection. The upserts make a rerun, or two nodes starting together, harmless.
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateClaims() {
+        if (mongoTemplate.exists(Query.query(Criteria.where("_id").is(CLAIM_BACKFILL)), MIGRATIONS)) {
+            return;
+        }
+        backfillClaims();
+        try {
+            mongoTemplate.insert(new Document("_id", CLAIM_BACKFILL).append("completedAt", LocalDateTime.now()), MIGRATIONS);
+        } catch (DuplicateKeyException e) {
+            // Another node finished it first
+        }
+    }
+
+    // Gives every seat of a held or confirmed booking its claim. A seat already claimed by another
+    // booking was sold twice before claims existed; those bookings are returned for manual review.
+    public Map<String, Object> backfillClaims() {
+        Query bookingQuery = Query.query(Criteria.where("status").in(SeatInventoryService.OCCUPIED_STATUSES));
+        bookingQuery.fields().include("showtimeId").include("bookedSeatNumbers");
+        bookingQuery.cursorBatchSize(BATCH_SIZE);
+
+        long claimed = 0;
+        Set<String> conflictingBookingIds = new LinkedHashSet<>();
+        List<Booking> batch = new ArrayList<>(BATCH_SIZE);
+        try (Stream<Booking> bookings = mongoTemplate.stream(bookingQuery, Booking.class)) {
+            for (Booking booking : (Iterable<Booking>) bookings::iterator) {
+                batch.add(booking);
+                if (batch.size() == BATCH_SIZE) {
+                    claimed += backfillBatch(batch, conflictingBookingIds);
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            claimed += backfillBatch(batch, conflictingBookingIds);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("claimed", claimed);
+        result.put("conflictingBookingIds", conflictingBookingIds);
+        return result;
+    }
+
+    private long removeOrphans(Map<String, String> claimedBy, LocalDateTime claimedBefore) {
+        Query occupiedQuery = Query.query(Criteria.where("id").in(claimedBy.keySet())
+                .and("status").in(SeatInventoryService.OCCUPIED_STATUSES));
+        occupiedQuery.fields().include("id");
+        Set<String> occupied = mongoTemplate.find(occupiedQuery, Booking.class).stream()
+                .map(Booking::getId)
+                .collect(Collectors.toSet());
+
+        List<String> orphaned = claimedBy.keySet().stream()
+                .filter(bookingId -> !occupied.contains(bookingId))
+                .collect(Collectors.toList());
+        if (orphaned.isEmpty()) {
+            return 0;
+        }
+
+        // The age condition again, so a booking that has just reclaimed its seats keeps them
+        long removed = mongoTemplate.remove(Query.query(Criteria.where("bookingId").in(orphaned)
+                .andOperator(claimedBefore(claimedBefore))), SeatClaim.class).getDeletedCount();
+        orphaned.stream().map(claimedBy::get).distinct().forEach(seatInventoryService::evict);
+        return removed;
+    }
+
+    private long backfillBatch(List<Booking> bookings, Set<String> conflictingBookingIds) {
+        List<Pair<Query, Update>> upserts = new ArrayList<>();
+        List<String> upsertBookingIds = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (Booking booking : bookings) {
+            for (String seat : booking.getBookedSeatNumbers()) {
+                // Matches only this booking's own claim; a seat claimed by another booking makes
+                // the upsert insert a second claim, which the unique index rejects
+                upserts.add(Pair.of(
+                        Query.query(Criteria.where("showtimeId").is(booking.getShowtimeId())
+                                .and("seatNumber").is(seat)
+                                .and("bookingId").is(booking.getId())),
+                        new Update().setOnInsert("createdAt", now).setOnInsert("updatedAt", now)));
+                upsertBookingIds.add(booking.getId());
+            }
+        }
+        if (upserts.isEmpty()) {
+            return 0;
+        }
+
+        BulkWriteResult result;
+        try {
+            result = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, SeatClaim.class)
+                    .upsert(upserts)
+                    .execute();
+        } catch (BulkOperationException e) {
+            for (BulkWriteError error : e.getErrors()) {
+                if (error.getCode() != SeatInventoryService.DUPLICATE_KEY_ERROR) {
+                    throw e;
+                }
+                conflictingBookingIds.add(upsertBookingIds.get(error.getIndex()));
+            }
+            result = e.getResult();
+        }
+        bookings.stream().map(Booking::getShowtimeId).distinct().forEach(seatInventoryService::evict);
+        return result.getUpserts().size();
+    }
+
+    private static Criteria claimedBefore(LocalDateTime claimedBefore) {
+        return new Criteria().orOperator(Criteria.where("createdAt").lt(claimedBefore),
+                Criteria.where("createdAt").exists(false));
+    }
+}
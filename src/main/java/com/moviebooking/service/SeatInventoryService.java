@@ -0,0 +1,250 @@
+package com.moviebooking.service;
+
+import com.mongodb.bulk.BulkWriteError;
+import com.moviebooking.exception.ResourceNotFoundException;
+import com.moviebooking.exception.SeatUnavailableException;
+import com.moviebooking.model.Booking;
+import com.moviebooking.model.SeatClaim;
+import com.moviebooking.model.Showtime;
+import com.moviebooking.repository.BookingRepository;
+import com.moviebooking.repository.SeatClaimRepository;
+import com.moviebooking.repository.ShowtimeRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+public class SeatInventoryService {
+
+    // Bookings in these states keep their seats out of the inventory
+    public static final List<Booking.BookingStatus> OCCUPIED_STATUSES = Arrays.asList(
+            Booking.BookingStatus.CONFIRMED,
+            Booking.BookingStatus.PENDING_PAYMENT);
+
+    static final int DUPLICATE_KEY_ERROR = 11000;
+
+    private static final Duration REFRESH_OVERLAP = Duration.ofSeconds(5); // tolerate clock skew
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private ShowtimeRepository showtimeRepository;
+
+    @Autowired
+    private SeatClaimRepository seatClaimRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private SeatMapStreamService seatMapStreamService;
+
+    @Value("${booking.seat-map-idle-eviction}")
+    private Long idleEviction;
+
+    private final ConcurrentHashMap<String, CachedSeatMap> seatMaps = new ConcurrentHashMap<>();
+
+    // Maps loaded after this still get the changes made since, so it starts at startup
+    private volatile LocalDateTime lastRefresh = LocalDateTime.now();
+
+    public SeatMap getSeatMap(String showtimeId) {
+        CachedSeatMap cached = seatMaps.get(showtimeId);
+        if (cached == null) {
+            // Loaded outside the map's lock so a slow query never blocks other showtimes in the
+            // same bin. A mark or release that lands meanwhile finds no map; the booking write
+            // behind it brings the showtime into the next refresh pass.
+            CachedSeatMap loaded = loadSeatMap(showtimeId);
+            cached = seatMaps.putIfAbsent(showtimeId, loaded);
+            if (cached == null) {
+                cached = loaded;
+            }
+        }
+        cached.lastReadAt = System.currentTimeMillis();
+        return cached.seatMap;
+    }
+
+    public void markBooked(String showtimeId, List<String> seatNumbers) {
+        seatMaps.computeIfPresent(showtimeId, (id, cached) -> {
+            for (String seat : seatNumbers) {
+                int index = SeatLayout.seatIndex(seat, cached.seatMap.getTotalSeats());
+                if (index >= 0) {
+                    cached.seatMap.mark(index);
+                }
+            }
+            return cached;
+        });
+        seatMapStreamService.publishBooked(showtimeId, seatNumbers);
+    }
+
+    public void release(String showtimeId, List<String> seatNumbers) {
+        seatMaps.computeIfPresent(showtimeId, (id, cached) -> {
+            for (String seat : seatNumbers) {
+                int index = SeatLayout.seatIndex(seat, cached.seatMap.getTotalSeats());
+                if (index >= 0) {
+                    cached.seatMap.clear(index);
+                }
+            }
+            return cached;
+        });
+        seatMapStreamService.publishReleased(showtimeId, seatNumbers);
+    }
+
+    // Bookings, expiries and cancellations on other nodes never reach this node's maps directly.
+    // Each pass drops maps of finished or idle showtimes and reloads only the showtimes that had a
+    // booking written since the last pass, found with one query on the bookings' updatedAt.
+    @Scheduled(fixedDelayString = "${booking.seat-map-refresh-interval}")
+    public void refreshSeatMaps() {
+        LocalDateTime now = LocalDateTime.now();
+        long idleSince = System.currentTimeMillis() - idleEviction;
+        seatMaps.values().removeIf(cached -> cached.lastReadAt < idleSince
+                || (cached.endsAt != null && cached.endsAt.isBefore(now)));
+
+        LocalDateTime since = lastRefresh;
+        lastRefresh = now;
+        if (seatMaps.isEmpty()) {
+            return;
+        }
+        Query changedQuery = Query.query(Criteria.where("showtimeId").in(new ArrayList<>(seatMaps.keySet()))
+                .and("updatedAt").gte(since.minus(REFRESH_OVERLAP)));
+        for (String showtimeId : mongoTemplate.findDistinct(changedQuery, "showtimeId", Booking.class, String.class)) {
+            refresh(showtimeId);
+        }
+    }
+
+    // Reloads the map's occupancy and applies the difference in place, so readers holding it see
+    // the change, and streams it. The query runs outside the map's lock; if a local mark or release
+    // lands meanwhile the load may be older than the map, so it is dropped and the booking write
+    // behind that change brings the showtime back into the next pass.
+    public void refresh(String showtimeId) {
+        CachedSeatMap loaded = seatMaps.get(showtimeId);
+        if (loaded == null) {
+            return;
+        }
+        long version = loaded.seatMap.getVersion();
+        SeatMap current = loadOccupancy(showtimeId, loaded.seatMap.getTotalSeats());
+
+        List<String> booked = new ArrayList<>();
+        List<String> released = new ArrayList<>();
+        seatMaps.computeIfPresent(showtimeId, (id, cached) -> {
+            if (cached != loaded || cached.seatMap.getVersion() != version) {
+                return cached;
+            }
+            SeatMap seatMap = cached.seatMap;
+            for (int index = 0; index < seatMap.getTotalSeats(); index++) {
+                boolean isBooked = current.isBooked(index);
+                if (isBooked == seatMap.isBooked(index)) {
+                    continue;
+                }
+                if (isBooked) {
+                    seatMap.mark(index);
+                    booked.add(seatMap.label(index));
+                } else {
+                    seatMap.clear(index);
+                    released.add(seatMap.label(index));
+                }
+            }
+            return cached;
+        });
+        if (!booked.isEmpty()) {
+            seatMapStreamService.publishBooked(showtimeId, booked);
+        }
+        if (!released.isEmpty()) {
+            seatMapStreamService.publishReleased(showtimeId, released);
+        }
+    }
+
+    // Atomically claims every seat for the booking or none of them. Claims are inserted in one
+    // unordered bulk write, so all conflicting seats are reported and the rest are rolled back.
+    public void claimSeats(String showtimeId, String bookingId, List<String> seatNumbers) {
+        List<SeatClaim> claims = new ArrayList<>(seatNumbers.size());
+        for (String seat : seatNumbers) {
+            claims.add(new SeatClaim(showtimeId, seat, bookingId));
+        }
+
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, SeatClaim.class)
+                    .insert(claims)
+                    .execute();
+        } catch (BulkOperationException e) {
+            List<String> takenSeats = new ArrayList<>();
+            for (BulkWriteError error : e.getErrors()) {
+                if (error.getCode() != DUPLICATE_KEY_ERROR) {
+                    releaseClaims(bookingId);
+                    throw e;
+                }
+                takenSeats.add(seatNumbers.get(error.getIndex()));
+            }
+            releaseClaims(bookingId);
+            // Only the lost seats are marked; reloading here would send every loser of a busy
+            // showtime to Mongo at once, and the next refresh pass catches up on the rest
+            markBooked(showtimeId, takenSeats);
+            throw new SeatUnavailableException(takenSeats);
+        }
+    }
+
+    public void releaseClaims(String bookingId) {
+        seatClaimRepository.deleteByBookingId(bookingId);
+    }
+
+    public void releaseClaims(Collection<String> bookingIds) {
+        mongoTemplate.remove(Query.query(Criteria.where("bookingId").in(bookingIds)), SeatClaim.class);
+    }
+
+    // Leaves alone any claims the booking made after claimedBefore, e.g. when it won its seats back
+    public void releaseClaims(String bookingId, LocalDateTime claimedBefore) {
+        mongoTemplate.remove(Query.query(Criteria.where("bookingId").is(bookingId)
+                .orOperator(Criteria.where("createdAt").lt(claimedBefore), Criteria.where("createdAt").exists(false))),
+                SeatClaim.class);
+    }
+
+    // Drop the cached map so the next read rebuilds it, e.g. after the auditorium size changes
+    public void evict(String showtimeId) {
+        seatMaps.remove(showtimeId);
+    }
+
+    private CachedSeatMap loadSeatMap(String showtimeId) {
+        Showtime showtime = showtimeRepository.findById(showtimeId)
+                .orElseThrow(() -> new ResourceNotFoundException("Showtime", "id", showtimeId));
+        return new CachedSeatMap(loadOccupancy(showtimeId, showtime.getTotalSeats()), showtime.getEndTime());
+    }
+
+    private SeatMap loadOccupancy(String showtimeId, int totalSeats) {
+        SeatMap seatMap = new SeatMap(totalSeats);
+        List<Booking> bookings = bookingRepository.findByShowtimeIdAndStatusIn(showtimeId, OCCUPIED_STATUSES);
+        for (Booking booking : bookings) {
+            for (String seat : booking.getBookedSeatNumbers()) {
+                int index = SeatLayout.seatIndex(seat, seatMap.getTotalSeats());
+                if (index >= 0) {
+                    seatMap.mark(index);
+                }
+            }
+        }
+        return seatMap;
+    }
+
+    private static class CachedSeatMap {
+        private final SeatMap seatMap;
+        private final LocalDateTime endsAt;
+        private volatile long lastReadAt = System.currentTimeMillis();
+
+        private CachedSeatMap(SeatMap seatMap, LocalDateTime endsAt) {
+            this.seatMap = seatMap;
+            this.endsAt = endsAt;
+        }
+    }
+}
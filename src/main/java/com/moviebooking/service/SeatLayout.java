@@ -0,0 +1,53 @@
+package com.moviebooking.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public final class SeatLayout {
+
+    // Auditoriums are laid out as rows of 10 seats: A1-A10, B1-B10, etc.
+    public static final int SEATS_PER_ROW = 10;
+
+    private SeatLayout() {}
+
+    public static int rowCount(int totalSeats) {
+        return (totalSeats + SEATS_PER_ROW - 1) / SEATS_PER_ROW;
+    }
+
+    public static String seatLabel(int seatIndex) {
+        char rowLetter = (char) ('A' + seatIndex / SEATS_PER_ROW);
+        return rowLetter + String.valueOf(seatIndex % SEATS_PER_ROW + 1);
+    }
+
+    // Returns the zero-based position of the seat, or -1 if it is not part of the layout
+    public static int seatIndex(String seatNumber, int totalSeats) {
+        if (seatNumber == null || seatNumber.length() < 2) {
+            return -1;
+        }
+
+        int row = seatNumber.charAt(0) - 'A';
+        int seat = 0;
+        for (int i = 1; i < seatNumber.length(); i++) {
+            char c = seatNumber.charAt(i);
+            if (c < '0' || c > '9' || seat > SEATS_PER_ROW) {
+                return -1;
+            }
+            seat = seat * 10 + (c - '0');
+        }
+
+        if (row < 0 || seat < 1 || seat > SEATS_PER_ROW) {
+            return -1;
+        }
+
+        int index = row * SEATS_PER_ROW + seat - 1;
+        return index < totalSeats ? index : -1;
+    }
+
+    public static List<String> generateSeatNumbers(int totalSeats) {
+        List<String> seats = new ArrayList<>(totalSeats);
+        for (int index = 0; index < totalSeats; index++) {
+            seats.add(seatLabel(index));
+        }
+        return seats;
+    }
+}
@@ -0,0 +1,157 @@
+package com.moviebooking.service;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+// Occupancy bitmap for a single showtime: bit i is set when seat i is held or booked
+public class SeatMap {
+
+    private final int totalSeats;
+    private final long[] words;
+    private final String[] labels;
+    private int bookedCount;
+    private long version; // bumped by every mark and clear, so a reload can tell it raced with one
+
+    public SeatMap(int totalSeats) {
+        this.totalSeats = totalSeats;
+        this.words = new long[(totalSeats + 63) >>> 6];
+        this.labels = SeatLayout.generateSeatNumbers(totalSeats).toArray(new String[0]);
+    }
+
+    public int getTotalSeats() {
+        return totalSeats;
+    }
+
+    public synchronized int getBookedCount() {
+        return bookedCount;
+    }
+
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    public String label(int seatIndex) {
+        return labels[seatIndex];
+    }
+
+    public synchronized boolean isBooked(int seatIndex) {
+        return (words[seatIndex >>> 6] & (1L << seatIndex)) != 0;
+    }
+
+    public synchronized void mark(int seatIndex) {
+        version++;
+        long bit = 1L << seatIndex;
+        int word = seatIndex >>> 6;
+        if ((words[word] & bit) == 0) {
+            words[word] |= bit;
+            bookedCount++;
+        }
+    }
+
+    public synchronized void clear(int seatIndex) {
+        version++;
+        long bit = 1L << seatIndex;
+        int word = seatIndex >>> 6;
+        if ((words[word] & bit) != 0) {
+            words[word] &= ~bit;
+            bookedCount--;
+        }
+    }
+
+    public synchronized long[] snapshot() {
+        return words.clone();
+    }
+
+    public List<String> bookedSeats(long[] snapshot) {
+        List<String> seats = new ArrayList<>();
+        for (int word = 0; word < snapshot.length; word++) {
+            long bits = snapshot[word];
+            while (bits != 0) {
+                int index = (word << 6) + Long.numberOfTrailingZeros(bits);
+                seats.add(labels[index]);
+                bits &= bits - 1;
+            }
+        }
+        return seats;
+    }
+
+    public List<String> availableSeats(long[] snapshot) {
+        List<String> seats = new ArrayList<>(totalSeats);
+        for (int word = 0; word < snapshot.length; word++) {
+            // Only consider bits that map to real seats in the last word
+            long valid = word == snapshot.length - 1 && (totalSeats & 63) != 0
+                    ? (1L << (totalSeats & 63)) - 1
+                    : -1L;
+            long bits = ~snapshot[word] & valid;
+            while (bits != 0) {
+                int index = (word << 6) + Long.numberOfTrailingZeros(bits);
+                seats.add(labels[index]);
+                bits &= bits - 1;
+            }
+        }
+        return seats;
+    }
+
+    // Packs the occupancy bits little-endian, eight seats per byte, and base64-encodes them
+    public String encodeOccupancy(long[] snapshot) {
+        byte[] bytes = new byte[(totalSeats + 7) >>> 3];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) (snapshot[i >>> 3] >>> ((i & 7) << 3));
+        }
+        return Base64.getEncoder().encodeToString(bytes);
+    }
+
+    public static int countBooked(long[] snapshot) {
+        int count = 0;
+        for (long word : snapshot) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    // Returns the seat index where the best free block of partySize adjacent seats in one row
+    // starts, or -1 if there is none. Each row is scanned as a bitmask, so a 1000-seat map
+    // takes a few hundred bit operations.
+    public int findBestBlock(long[] snapshot, int partySize, SeatBlockScorer scorer) {
+        int rows = SeatLayout.rowCount(totalSeats);
+        int bestStart = -1;
+        double bestScore = Double.MAX_VALUE;
+
+        for (int row = 0; row < rows; row++) {
+            int rowStart = row * SeatLayout.SEATS_PER_ROW;
+            int seatsInRow = Math.min(SeatLayout.SEATS_PER_ROW, totalSeats - rowStart);
+            if (seatsInRow < partySize) {
+                continue;
+            }
+
+            // Bit j of blockStarts is set when seats j .. j + partySize - 1 are all free
+            int free = ~rowBits(snapshot, rowStart, seatsInRow) & ((1 << seatsInRow) - 1);
+            int blockStarts = free;
+            for (int k = 1; k < partySize && blockStarts != 0; k++) {
+                blockStarts &= free >>> k;
+            }
+
+            while (blockStarts != 0) {
+                int firstSeat = Integer.numberOfTrailingZeros(blockStarts);
+                double score = scorer.score(row, firstSeat, partySize, rows, seatsInRow);
+                if (score < bestScore) {
+                    bestScore = score;
+                    bestStart = rowStart + firstSeat;
+                }
+                blockStarts &= blockStarts - 1;
+            }
+        }
+        return bestStart;
+    }
+
+    private static int rowBits(long[] snapshot, int start, int length) {
+        int word = start >>> 6;
+        int offset = start & 63;
+        long bits = snapshot[word] >>> offset;
+        if (offset + length > 64) {
+            bits |= snapshot[word + 1] << (64 - offset);
+        }
+        return (int) (bits & ((1L << length) - 1));
+    }
+}
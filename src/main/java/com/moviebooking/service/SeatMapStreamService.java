@@ -0,0 +1,202 @@
+package com.moviebooking.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.moviebooking.dto.booking.SeatAvailabilityResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Service
+public class SeatMapStreamService {
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${booking.seat-stream-timeout}")
+    private Long streamTimeout;
+
+    @Value("${booking.seat-stream-queue-size}")
+    private Integer queueSize;
+
+    @Value("${booking.seat-stream-senders}")
+    private Integer senderThreads;
+
+    private final Map<String, List<Subscriber>> subscribers = new ConcurrentHashMap<>();
+
+    // Events are queued through one thread so every subscriber sees the snapshot and deltas of a
+    // showtime in the order the seat map changed
+    private final ExecutorService dispatcher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "seat-map-stream");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Writes to the clients happen here, at most one task per subscriber at a time, so a slow
+    // client only ever holds up its own queue
+    private ExecutorService senders;
+
+    @PostConstruct
+    public void init() {
+        senders = Executors.newFixedThreadPool(senderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "seat-map-sender");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public SseEmitter subscribe(String showtimeId) {
+        // Fail fast with a 404 for unknown showtimes before opening the stream
+        bookingService.getSeatAvailability(showtimeId, true);
+
+        Subscriber subscriber = new Subscriber(new SseEmitter(streamTimeout), queueSize);
+        subscribers.compute(showtimeId, (id, current) -> {
+            List<Subscriber> updated = current != null ? current : new CopyOnWriteArrayList<>();
+            updated.add(subscriber);
+            return updated;
+        });
+
+        Runnable remove = () -> {
+            subscriber.closed = true;
+            unsubscribe(showtimeId, subscriber);
+        };
+        subscriber.emitter.onCompletion(remove);
+        subscriber.emitter.onTimeout(remove);
+        subscriber.emitter.onError(error -> remove.run());
+
+        // The snapshot is taken on the dispatcher thread, so no delta can be queued ahead of it
+        dispatcher.execute(() -> {
+            SeatAvailabilityResponse snapshot = bookingService.getSeatAvailability(showtimeId, true);
+            enqueue(showtimeId, subscriber,
+                    SseEmitter.event().name("snapshot").data(snapshot, MediaType.APPLICATION_JSON).build());
+        });
+        return subscriber.emitter;
+    }
+
+    public void publishBooked(String showtimeId, List<String> seatNumbers) {
+        publish(showtimeId, Map.of("booked", seatNumbers));
+    }
+
+    public void publishReleased(String showtimeId, List<String> seatNumbers) {
+        publish(showtimeId, Map.of("released", seatNumbers));
+    }
+
+    private void publish(String showtimeId, Map<String, List<String>> delta) {
+        if (seatNumbersEmpty(delta) || !subscribers.containsKey(showtimeId)) {
+            return;
+        }
+        dispatcher.execute(() -> {
+            List<Subscriber> current = subscribers.get(showtimeId);
+            if (current == null) {
+                return;
+            }
+            // The event is serialized once per change and the same bytes go to every subscriber
+            Set<ResponseBodyEmitter.DataWithMediaType> event;
+            try {
+                event = SseEmitter.event().name("delta").data(objectMapper.writeValueAsString(delta)).build();
+            } catch (JsonProcessingException e) {
+                return;
+            }
+            for (Subscriber subscriber : current) {
+                enqueue(showtimeId, subscriber, event);
+            }
+        });
+    }
+
+    private void enqueue(String showtimeId, Subscriber subscriber, Set<ResponseBodyEmitter.DataWithMediaType> event) {
+        if (!subscriber.events.offer(event)) {
+            // Too far behind to catch up; closing lets the client reconnect from a fresh snapshot
+            subscriber.closed = true;
+            subscriber.events.clear();
+            unsubscribe(showtimeId, subscriber);
+        }
+        schedule(showtimeId, subscriber);
+    }
+
+    private void schedule(String showtimeId, Subscriber subscriber) {
+        if (subscriber.draining.compareAndSet(false, true)) {
+            try {
+                senders.execute(() -> drain(showtimeId, subscriber));
+            } catch (RejectedExecutionException e) {
+                // Shutting down
+            }
+        }
+    }
+
+    private void drain(String showtimeId, Subscriber subscriber) {
+        do {
+            Set<ResponseBodyEmitter.DataWithMediaType> event;
+            while (!subscriber.closed && (event = subscriber.events.poll()) != null) {
+                try {
+                    subscriber.emitter.send(event);
+                } catch (IOException | IllegalStateException e) {
+                    // Client went away; drop it so later deltas skip it
+                    subscriber.closed = true;
+                    unsubscribe(showtimeId, subscriber);
+                }
+            }
+            if (subscriber.closed) {
+                // Completed here rather than on the dispatcher, which would otherwise wait for
+                // the slow send to return; draining stays set so nothing is scheduled again
+                try {
+                    subscriber.emitter.complete();
+                } catch (IllegalStateException e) {
+                    // Already completed by the client or the container
+                }
+                return;
+            }
+            subscriber.draining.set(false);
+            // An event queued between the last poll and clearing the flag still needs a sender
+        } while ((subscriber.closed || !subscriber.events.isEmpty()) && subscriber.draining.compareAndSet(false, true));
+    }
+
+    private void unsubscribe(String showtimeId, Subscriber subscriber) {
+        subscribers.computeIfPresent(showtimeId, (id, current) -> {
+            current.remove(subscriber);
+            return current.isEmpty() ? null : current;
+        });
+    }
+
+    private boolean seatNumbersEmpty(Map<String, List<String>> delta) {
+        return delta.values().stream().allMatch(List::isEmpty);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdownNow();
+        senders.shutdownNow();
+    }
+
+    private static class Subscriber {
+        private final SseEmitter emitter;
+        private final BlockingQueue<Set<ResponseBodyEmitter.DataWithMediaType>> events;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean closed;
+
+        private Subscriber(SseEmitter emitter, int queueSize) {
+            this.emitter = emitter;
+            this.events = new ArrayBlockingQueue<>(queueSize);
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.moviebooking.service;
+
+import com.moviebooking.exception.ResourceNotFoundException;
+import com.moviebooking.model.Booking;
+import com.moviebooking.model.Payment;
+import com.moviebooking.model.SettlementReport;
+import com.moviebooking.model.Ticket;
+import com.moviebooking.repository.SettlementReportRepository;
+import jakarta.annotation.PreDestroy;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Reconciles payments against their bookings and tickets. Payments are streamed off a cursor
+// and checked a batch at a time with $in lookups, so memory stays flat however long the range.
+@Service
+public class SettlementService {
+
+    private static final int PROGRESS_EVERY_BATCHES = 20;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private SettlementReportRepository settlementReportRepository;
+
+    @Value("${settlement.batch-size}")
+    private Integer batchSize;
+
+    @Value("${settlement.max-issue-samples}")
+    private Integer maxIssueSamples;
+
+    @Value("${settlement.stale-pending-after}")
+    private Long stalePendingAfter;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private final ExecutorService runner = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "settlement");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Schedules settlement of the previous day. The report id is the date, so only one node
+    // inserts it; the run itself happens on the settlement thread, never on the shared scheduler.
+    @Scheduled(cron = "${settlement.cron}")
+    public void settlePreviousDay() {
+        LocalDate day = LocalDate.now().minusDays(1);
+        SettlementReport report = new SettlementReport("daily-" + day, day.atStartOfDay(), day.plusDays(1).atStartOfDay());
+        report.setStatus(SettlementReport.Status.PENDING);
+        try {
+            settlementReportRepository.insert(report);
+        } catch (DuplicateKeyException e) {
+            // Already scheduled by another node; still sweep for reports left PENDING
+        }
+        runner.execute(this::runPendingReports);
+    }
+
+    // Runs every PENDING report, oldest first. The PENDING -> RUNNING claim is conditional, so
+    // each report runs on one node; a report whose node died before running it is picked up
+    // by the next night's sweep.
+    private void runPendingReports() {
+        while (true) {
+            SettlementReport report = mongoTemplate.findAndModify(
+                    Query.query(Criteria.where("status").is(SettlementReport.Status.PENDING))
+                            .with(Sort.by("periodStart")),
+                    new Update().set("status", SettlementReport.Status.RUNNING).set("startedAt", LocalDateTime.now()),
+                    FindAndModifyOptions.options().returnNew(true),
+                    SettlementReport.class);
+            if (report == null) {
+                return;
+            }
+            // Admin runs queue behind this one on the same thread
+            running.set(true);
+            run(report);
+        }
+    }
+
+    // Admin-triggered run; returns the RUNNING report, which can be polled for progress
+    public SettlementReport startSettlement(LocalDateTime start, LocalDateTime end) {
+        if (!start.isBefore(end)) {
+            throw new IllegalArgumentException("Start must be before end");
+        }
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalArgumentException("A settlement run is already in progress");
+        }
+        SettlementReport report = settlementReportRepository.insert(
+                new SettlementReport(new ObjectId().toHexString(), start, end));
+        runner.execute(() -> run(report));
+        return report;
+    }
+
+    public SettlementReport getReport(String id) {
+        return settlementReportRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Settlement report", "id", id));
+    }
+
+    public List<SettlementReport> getRecentReports() {
+        return settlementReportRepository.findTop20ByOrderByStartedAtDesc();
+    }
+
+    private void run(SettlementReport report) {
+        try {
+            reconcile(report);
+            report.setStatus(SettlementReport.Status.COMPLETED);
+        } catch (RuntimeException e) {
+            System.err.println("Settlement run " + report.getId() + " failed: " + e.getMessage());
+            report.setStatus(SettlementReport.Status.FAILED);
+            report.setFailureReason(e.getMessage());
+        } finally {
+            report.setCompletedAt(LocalDateTime.now());
+            updateThroughput(report);
+            settlementReportRepository.save(report);
+            running.set(false);
+        }
+    }
+
+    private void reconcile(SettlementReport report) {
+        Query paymentQuery = Query.query(Criteria.where("processedAt")
+                .gte(report.getPeriodStart()).lt(report.getPeriodEnd()));
+        paymentQuery.fields().include("bookingId").include("amount").include("status").include("processedAt");
+        paymentQuery.cursorBatchSize(batchSize);
+
+        List<Payment> batch = new ArrayList<>(batchSize);
+        int batches = 0;
+        try (Stream<Payment> payments = mongoTemplate.stream(paymentQuery, Payment.class)) {
+            for (Payment payment : (Iterable<Payment>) payments::iterator) {
+                batch.add(payment);
+                if (batch.size() == batchSize) {
+                    checkBatch(report, batch);
+                    batch.clear();
+                    if (++batches % PROGRESS_EVERY_BATCHES == 0) {
+                        reportProgress(report);
+                    }
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            checkBatch(report, batch);
+        }
+    }
+
+    private void checkBatch(SettlementReport report, List<Payment> payments) {
+        List<String> bookingIds = payments.stream().map(Payment::getBookingId).distinct().collect(Collectors.toList());
+
+        Query bookingQuery = Query.query(Criteria.where("id").in(bookingIds));
+        bookingQuery.fields().include("status").include("totalPrice");
+        Map<String, Booking> bookings = mongoTemplate.find(bookingQuery, Booking.class).stream()
+                .collect(Collectors.toMap(Booking::getId, Function.identity()));
+
+        Query ticketQuery = Query.query(Criteria.where("bookingId").in(bookingIds));
+        ticketQuery.fields().include("bookingId").include("isValid");
+        Map<String, Ticket> tickets = new HashMap<>();
+        for (Ticket ticket : mongoTemplate.find(ticketQuery, Ticket.class)) {
+            tickets.put(ticket.getBookingId(), ticket);
+        }
+
+        LocalDateTime staleBefore = report.getStartedAt().minus(Duration.ofMillis(stalePendingAfter));
+        for (Payment payment : payments) {
+            check(report, payment, bookings.get(payment.getBookingId()), tickets.get(payment.getBookingId()), staleBefore);
+        }
+    }
+
+    private void check(SettlementReport report, Payment payment, Booking booking, Ticket ticket, LocalDateTime staleBefore) {
+        report.setPaymentsScanned(report.getPaymentsScanned() + 1);
+        report.getPaymentsByStatus().merge(String.valueOf(payment.getStatus()), 1L, Long::sum);
+        double amount = payment.getAmount() != null ? payment.getAmount() : 0;
+        if (payment.getStatus() == Payment.PaymentStatus.SUCCESS) {
+            report.setSettledAmount(report.getSettledAmount() + amount);
+        } else if (payment.getStatus() == Payment.PaymentStatus.REFUNDED) {
+            report.setRefundedAmount(report.getRefundedAmount() + amount);
+        }
+
+        if (booking == null) {
+            flag(report, SettlementReport.IssueType.ORPHANED_PAYMENT, payment, "Booking does not exist");
+            return;
+        }
+        if (booking.getTotalPrice() != null && Math.abs(booking.getTotalPrice() - amount) > 0.005) {
+            flag(report, SettlementReport.IssueType.AMOUNT_MISMATCH, payment,
+                    "Paid " + amount + " for a booking of " + booking.getTotalPrice());
+        }
+
+        boolean confirmed = booking.getStatus() == Booking.BookingStatus.CONFIRMED;
+        switch (payment.getStatus()) {
+            case SUCCESS:
+                if (!confirmed) {
+                    flag(report, SettlementReport.IssueType.PAID_BOOKING_NOT_CONFIRMED, payment,
+                            "Booking is " + booking.getStatus());
+                } else if (ticket == null) {
+                    flag(report, SettlementReport.IssueType.MISSING_TICKET, payment, "No ticket issued");
+                }
+                break;
+            case REFUNDED:
+                if (ticket != null && ticket.isValid()) {
+                    flag(report, SettlementReport.IssueType.TICKET_VALID_AFTER_REFUND, payment, "Ticket is still valid");
+                }
+                break;
+            case PENDING:
+            case RETRYING:
+            case REFUND_PENDING:
+                if (payment.getProcessedAt() != null && payment.getProcessedAt().isBefore(staleBefore)) {
+                    flag(report, SettlementReport.IssueType.STALE_PENDING, payment, "Pending since " + payment.getProcessedAt());
+                }
+                break;
+            default:
+                break;
+        }
+        if (confirmed && payment.getStatus() != Payment.PaymentStatus.SUCCESS) {
+            flag(report, SettlementReport.IssueType.CONFIRMED_WITHOUT_PAYMENT, payment,
+                    "Booking is confirmed but the payment is " + payment.getStatus());
+        }
+    }
+
+    private void flag(SettlementReport report, SettlementReport.IssueType type, Payment payment, String detail) {
+        report.getIssueCounts().merge(type.name(), 1L, Long::sum);
+        if (report.getIssues().size() < maxIssueSamples) {
+            report.getIssues().add(new SettlementReport.Issue(type, payment.getId(), payment.getBookingId(), detail));
+        }
+    }
+
+    // Cheap progress write, so a long run can be followed without reading the whole report
+    private void reportProgress(SettlementReport report) {
+        updateThroughput(report);
+        mongoTemplate.updateFirst(Query.query(Criteria.where("id").is(report.getId())),
+                new Update().set("paymentsScanned", report.getPaymentsScanned())
+                        .set("paymentsPerSecond", report.getPaymentsPerSecond()),
+                SettlementReport.class);
+    }
+
+    private void updateThroughput(SettlementReport report) {
+        double seconds = Duration.between(report.getStartedAt(), LocalDateTime.now()).toMillis() / 1000.0;
+        report.setPaymentsPerSecond(seconds > 0 ? report.getPaymentsScanned() / seconds : 0);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        runner.shutdownNow();
+    }
+}
@@ -0,0 +1,216 @@
+package com.moviebooking.service;
+
+import com.moviebooking.exception.ResourceNotFoundException;
+import com.moviebooking.model.Booking;
+import com.moviebooking.model.Payment;
+import com.moviebooking.model.ShowtimeCancellation;
+import com.moviebooking.model.Ticket;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Cancels every live booking of a showtime, e.g. when a screen breaks down. Bookings are
+// streamed and handled a batch at a time: one updateMany each for bookings, payments and
+// tickets, one transaction queueing the refunds, and one seat claim delete, instead of several
+// round trips per booking.
+@Service
+public class ShowtimeCancellationService {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ShowtimeService showtimeService;
+
+    @Autowired
+    private SeatInventoryService seatInventoryService;
+
+    @Autowired
+    private ValidTicketIndex validTicketIndex;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Value("${showtime.cancellation-batch-size}")
+    private Integer batchSize;
+
+    @Value("${showtime.cancellation-lease}")
+    private Long lease;
+
+    private final ExecutorService runner = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "showtime-cancellation");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Returns the RUNNING job, which can be polled for progress
+    public ShowtimeCancellation startCancellation(String showtimeId, String reason) {
+        // Close the showtime first: createBooking and the payment paths check it, so no new
+        // bookings or charges land while the old ones are cancelled
+        showtimeService.deactivateShowtime(showtimeId);
+
+        ShowtimeCancellation job = new ShowtimeCancellation(showtimeId, reason);
+        job.setLockOwner(UUID.randomUUID().toString());
+        job.setLockedUntil(leaseFrom(job.getStartedAt()));
+        try {
+            mongoTemplate.insert(job);
+        } catch (DuplicateKeyException e) {
+            // Only a finished or abandoned run may be started again; the cancellation itself is
+            // idempotent, so a takeover simply goes over the showtime's bookings once more
+            ShowtimeCancellation previous = mongoTemplate.findAndReplace(
+                    Query.query(Criteria.where("id").is(showtimeId).orOperator(
+                            Criteria.where("status").ne(ShowtimeCancellation.Status.RUNNING),
+                            Criteria.where("lockedUntil").lt(job.getStartedAt()),
+                            Criteria.where("lockedUntil").exists(false))),
+                    job);
+            if (previous == null) {
+                throw new IllegalArgumentException("This showtime is already being cancelled");
+            }
+        }
+        runner.execute(() -> run(job));
+        return job;
+    }
+
+    public ShowtimeCancellation getCancellation(String showtimeId) {
+        ShowtimeCancellation job = mongoTemplate.findById(showtimeId, ShowtimeCancellation.class);
+        if (job == null) {
+            throw new ResourceNotFoundException("Showtime cancellation", "showtimeId", showtimeId);
+        }
+        return job;
+    }
+
+    private void run(ShowtimeCancellation job) {
+        // Scans for this showtime go to the database while its tickets are being invalidated
+        validTicketIndex.evict(job.getShowtimeId());
+        try {
+            cancelBookings(job);
+            // The counters have moved by whole batches; recompute them once from the claims
+            showtimeService.reconcileSeatCounts(job.getShowtimeId());
+            job.setStatus(ShowtimeCancellation.Status.COMPLETED);
+        } catch (RuntimeException e) {
+            System.err.println("Cancelling showtime " + job.getShowtimeId() + " failed: " + e.getMessage());
+            job.setStatus(ShowtimeCancellation.Status.FAILED);
+            job.setFailureReason(e.getMessage());
+        } finally {
+            job.setCompletedAt(LocalDateTime.now());
+            job.setDurationMillis(Duration.between(job.getStartedAt(), job.getCompletedAt()).toMillis());
+            Update outcome = progress(job)
+                    .set("status", job.getStatus())
+                    .set("completedAt", job.getCompletedAt())
+                    .set("durationMillis", job.getDurationMillis())
+                    .unset("lockedUntil");
+            if (job.getFailureReason() != null) {
+                outcome.set("failureReason", job.getFailureReason());
+            }
+            mongoTemplate.updateFirst(owned(job), outcome, ShowtimeCancellation.class);
+        }
+    }
+
+    private void cancelBookings(ShowtimeCancellation job) {
+        Query bookingQuery = Query.query(Criteria.where("showtimeId").is(job.getShowtimeId())
+                .and("status").in(SeatInventoryService.OCCUPIED_STATUSES));
+        bookingQuery.fields().include("bookedSeatNumbers");
+        bookingQuery.cursorBatchSize(batchSize);
+
+        List<Booking> batch = new ArrayList<>(batchSize);
+        try (Stream<Booking> bookings = mongoTemplate.stream(bookingQuery, Booking.class)) {
+            for (Booking booking : (Iterable<Booking>) bookings::iterator) {
+                batch.add(booking);
+                if (batch.size() == batchSize) {
+                    cancelBatch(job, batch);
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            cancelBatch(job, batch);
+        }
+    }
+
+    private void cancelBatch(ShowtimeCancellation job, List<Booking> bookings) {
+        List<String> bookingIds = bookings.stream().map(Booking::getId).collect(Collectors.toList());
+        LocalDateTime now = LocalDateTime.now();
+
+        // Conditional on the status, so a booking that was cancelled or expired meanwhile is left alone
+        long cancelled = mongoTemplate.updateMulti(
+                Query.query(Criteria.where("id").in(bookingIds)
+                        .and("status").in(SeatInventoryService.OCCUPIED_STATUSES)),
+                new Update().set("status", Booking.BookingStatus.CANCELLED).set("updatedAt", now),
+                Booking.class).getModifiedCount();
+
+        // Paid bookings get their money back through the PAYMENT_REFUND outbox worker, which
+        // calls the gateway; the payments read REFUND_PENDING until the refund goes through
+        long refunded = paymentService.requestRefunds(bookingIds, "Showtime was cancelled");
+
+        // Payments still in flight are stopped rather than charged for a cancelled show. A charge
+        // the gateway completes anyway loses its conditional SUCCESS write and is refunded.
+        mongoTemplate.updateMulti(
+                Query.query(Criteria.where("bookingId").in(bookingIds)
+                        .and("status").in(Payment.PaymentStatus.PENDING, Payment.PaymentStatus.RETRYING)),
+                new Update().set("status", Payment.PaymentStatus.FAILED)
+                        .set("failureReason", "Showtime was cancelled")
+                        .unset("nextAttemptAt")
+                        .set("updatedAt", now),
+                Payment.class);
+
+        long invalidated = mongoTemplate.updateMulti(
+                Query.query(Criteria.where("bookingId").in(bookingIds).and("isValid").is(true)),
+                new Update().set("isValid", false).set("updatedAt", now),
+                Ticket.class).getModifiedCount();
+
+        seatInventoryService.releaseClaims(bookingIds);
+        // One seat map update and one stream delta for the whole batch
+        seatInventoryService.release(job.getShowtimeId(), bookings.stream()
+                .flatMap(booking -> booking.getBookedSeatNumbers().stream())
+                .collect(Collectors.toList()));
+
+        job.setBookingsScanned(job.getBookingsScanned() + bookings.size());
+        job.setBookingsCancelled(job.getBookingsCancelled() + cancelled);
+        job.setPaymentsRefunded(job.getPaymentsRefunded() + refunded);
+        job.setTicketsInvalidated(job.getTicketsInvalidated() + invalidated);
+        // Progress doubles as the heartbeat that keeps the lease
+        long renewed = mongoTemplate.updateFirst(owned(job),
+                progress(job).set("lockedUntil", leaseFrom(LocalDateTime.now())),
+                ShowtimeCancellation.class).getMatchedCount();
+        if (renewed == 0) {
+            throw new IllegalStateException("Cancellation was taken over after its lease lapsed");
+        }
+    }
+
+    private Update progress(ShowtimeCancellation job) {
+        return new Update().set("bookingsScanned", job.getBookingsScanned())
+                .set("bookingsCancelled", job.getBookingsCancelled())
+                .set("paymentsRefunded", job.getPaymentsRefunded())
+                .set("ticketsInvalidated", job.getTicketsInvalidated());
+    }
+
+    // Writes from a run that lost its lease match nothing and leave the new run's job alone
+    private Query owned(ShowtimeCancellation job) {
+        return Query.query(Criteria.where("id").is(job.getShowtimeId()).and("lockOwner").is(job.getLockOwner()));
+    }
+
+    private LocalDateTime leaseFrom(LocalDateTime now) {
+        return now.plus(Duration.ofMillis(lease));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        runner.shutdownNow();
+    }
+}
@@ -2,25 +2,46 @@ package com.moviebooking.service;
 
 import com.moviebooking.dto.ShowtimeWithMovieInfo;
 import com.moviebooking.exception.ResourceNotFoundException;
+import com.moviebooking.model.Booking;
 import com.moviebooking.model.Movie;
 import com.moviebooking.model.Showtime;
 import com.moviebooking.repository.ShowtimeRepository;
+import org.bson.Document;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
 public class ShowtimeService {
 
+    private static final int RECONCILE_ATTEMPTS = 3;
+
     @Autowired
     private ShowtimeRepository showtimeRepository;
 
     @Autowired
     private MovieService movieService;
 
+    @Autowired
+    private SeatInventoryService seatInventoryService;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
     public List<Showtime> getAllActiveShowtimes() {
         return showtimeRepository.findByActiveTrue();
     }
@@ -41,12 +62,27 @@ public class ShowtimeService {
                 .orElseThrow(() -> new ResourceNotFoundException("Showtime", "id", id));
     }
 
+    // Deactivated or cancelled showtimes take no new bookings and no new charges
+    public Showtime getBookableShowtime(String id) {
+        Showtime showtime = getShowtimeById(id);
+        if (!showtime.isActive()) {
+            throw new IllegalArgumentException("Showtime is no longer open for booking");
+        }
+        return showtime;
+    }
+
     public List<Showtime> getShowtimesByMovieId(String movieId) {
         // Verify movie exists
         movieService.getMovieById(movieId);
         return showtimeRepository.findByMovieIdAndActiveTrue(movieId);
     }
 
+    public List<Showtime> getAvailableShowtimesByMovieId(String movieId) {
+        // Verify movie exists
+        movieService.getMovieById(movieId);
+        return showtimeRepository.findByMovieIdAndActiveTrueAndAvailableSeatCountGreaterThan(movieId, 0);
+    }
+
     public List<Showtime> getUpcomingShowtimesByMovieId(String movieId) {
         // Verify movie exists
         movieService.getMovieById(movieId);
@@ -63,6 +99,10 @@ public class ShowtimeService {
                     "Schedule conflict: Another showtime is already scheduled for this screen at this time");
         }
 
+        // Counters are owned by the booking flow, never by the request body
+        showtime.setHeldSeatCount(0);
+        showtime.setBookedSeatCount(0);
+        showtime.setAvailableSeatCount(showtime.getTotalSeats());
         return showtimeRepository.save(showtime);
     }
 
@@ -87,24 +127,141 @@ public class ShowtimeService {
                     "Schedule conflict: Another showtime is already scheduled for this screen at this time");
         }
 
-        return showtimeRepository.save(showtime);
+        showtime = showtimeRepository.save(showtime);
+        // The seat map and available count depend on totalSeats, so rebuild both
+        seatInventoryService.evict(id);
+        reconcileSeatCounts(id);
+        return getShowtimeById(id);
     }
 
     public void deleteShowtime(String id) {
         Showtime showtime = getShowtimeById(id);
         showtimeRepository.delete(showtime);
+        seatInventoryService.evict(id);
     }
 
     public Showtime deactivateShowtime(String id) {
-        Showtime showtime = getShowtimeById(id);
-        showtime.setActive(false);
-        return showtimeRepository.save(showtime);
+        return setActive(id, false);
     }
 
     public Showtime activateShowtime(String id) {
-        Showtime showtime = getShowtimeById(id);
-        showtime.setActive(true);
-        return showtimeRepository.save(showtime);
+        return setActive(id, true);
+    }
+
+    // Targeted update so a concurrent seat counter $inc is not overwritten by a full save
+    private Showtime setActive(String id, boolean active) {
+        Showtime showtime = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("id").is(id)),
+                new Update().set("active", active).set("updatedAt", LocalDateTime.now()),
+                FindAndModifyOptions.options().returnNew(true),
+                Showtime.class);
+        if (showtime == null) {
+            throw new ResourceNotFoundException("Showtime", "id", id);
+        }
+        return showtime;
+    }
+
+    // Applies the seat counter change for a booking of the given size moving between statuses;
+    // from is null for a new booking
+    public void recordSeatTransition(String showtimeId, int seats,
+                                     Booking.BookingStatus from, Booking.BookingStatus to) {
+        int heldDelta = countAs(Booking.BookingStatus.PENDING_PAYMENT, to, seats)
+                - countAs(Booking.BookingStatus.PENDING_PAYMENT, from, seats);
+        int bookedDelta = countAs(Booking.BookingStatus.CONFIRMED, to, seats)
+                - countAs(Booking.BookingStatus.CONFIRMED, from, seats);
+        adjustSeatCounts(showtimeId, heldDelta, bookedDelta);
+    }
+
+    public void adjustSeatCounts(String showtimeId, int heldDelta, int bookedDelta) {
+        if (heldDelta == 0 && bookedDelta == 0) {
+            return;
+        }
+        Update update = new Update()
+                .inc("heldSeatCount", heldDelta)
+                .inc("bookedSeatCount", bookedDelta)
+                .inc("availableSeatCount", -(heldDelta + bookedDelta));
+        mongoTemplate.updateFirst(Query.query(Criteria.where("id").is(showtimeId)), update, Showtime.class);
+    }
+
+    // Repairs counter drift (crashes between a booking write and its $inc, or showtimes created
+    // before the counters existed) from one aggregation over the occupied bookings. Showtimes that
+    // have ended take no more bookings, so the scheduled pass leaves them alone.
+    @Scheduled(fixedDelayString = "${showtime.seat-count-reconcile-interval}")
+    public int reconcileSeatCounts() {
+        return reconcileSeatCounts(Criteria.where("endTime").gt(LocalDateTime.now()));
+    }
+
+    public int reconcileSeatCounts(String showtimeId) {
+        return reconcileSeatCounts(Criteria.where("id").is(showtimeId));
+    }
+
+    // The counters are read before the bookings are aggregated and only overwritten if they still
+    // hold those values, so an $inc landing in between is never lost; showtimes that moved are
+    // read and counted again
+    private int reconcileSeatCounts(Criteria showtimeFilter) {
+        List<Showtime> showtimes = findSeatCounts(showtimeFilter);
+        int repaired = 0;
+        for (int attempt = 0; attempt < RECONCILE_ATTEMPTS && !showtimes.isEmpty(); attempt++) {
+            Map<String, int[]> counts = countOccupiedSeats(showtimes.stream().map(Showtime::getId).toList());
+            List<String> moved = new ArrayList<>();
+            for (Showtime showtime : showtimes) {
+                int[] actual = counts.getOrDefault(showtime.getId(), new int[2]);
+                int available = showtime.getTotalSeats() - actual[0] - actual[1];
+                if (showtime.getHeldSeatCount() == actual[0]
+                        && showtime.getBookedSeatCount() == actual[1]
+                        && showtime.getAvailableSeatCount() != null
+                        && showtime.getAvailableSeatCount() == available) {
+                    continue;
+                }
+                Query unchanged = Query.query(Criteria.where("id").is(showtime.getId())
+                        .and("heldSeatCount").in(storedAs(showtime.getHeldSeatCount()))
+                        .and("bookedSeatCount").in(storedAs(showtime.getBookedSeatCount()))
+                        .and("availableSeatCount").is(showtime.getAvailableSeatCount()));
+                Update repair = new Update().set("heldSeatCount", actual[0])
+                        .set("bookedSeatCount", actual[1])
+                        .set("availableSeatCount", available);
+                if (mongoTemplate.updateFirst(unchanged, repair, Showtime.class).getModifiedCount() > 0) {
+                    repaired++;
+                } else {
+                    moved.add(showtime.getId());
+                }
+            }
+            showtimes = moved.isEmpty() ? List.of() : findSeatCounts(Criteria.where("id").in(moved));
+        }
+        return repaired;
+    }
+
+    // Counters missing from older documents read back as zero
+    private static List<Integer> storedAs(int count) {
+        return count == 0 ? Arrays.asList(0, null) : List.of(count);
+    }
+
+    private List<Showtime> findSeatCounts(Criteria filter) {
+        Query query = Query.query(filter);
+        query.fields().include("totalSeats", "heldSeatCount", "bookedSeatCount", "availableSeatCount");
+        return mongoTemplate.find(query, Showtime.class);
+    }
+
+    // showtimeId -> {held, booked}
+    private Map<String, int[]> countOccupiedSeats(List<String> showtimeIds) {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("showtimeId").in(showtimeIds)
+                        .and("status").in(SeatInventoryService.OCCUPIED_STATUSES)),
+                Aggregation.project("showtimeId", "status").and("bookedSeatNumbers").size().as("seats"),
+                Aggregation.group("showtimeId", "status").sum("seats").as("seats"));
+
+        Map<String, int[]> counts = new HashMap<>();
+        for (Document result : mongoTemplate.aggregate(aggregation, Booking.class, Document.class)) {
+            Document group = result.get("_id", Document.class);
+            int[] showtimeCounts = counts.computeIfAbsent(group.getString("showtimeId"), id -> new int[2]);
+            boolean held = Booking.BookingStatus.PENDING_PAYMENT.name().equals(group.getString("status"));
+            showtimeCounts[held ? 0 : 1] += ((Number) result.get("seats")).intValue();
+        }
+        return counts;
+    }
+
+    private static int countAs(Booking.BookingStatus counted, Booking.BookingStatus status, int seats) {
+        return status == counted ? seats : 0;
     }
 
     private boolean hasScheduleConflict(Showtime newShowtime) {
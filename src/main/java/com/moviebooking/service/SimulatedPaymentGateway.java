@@ -0,0 +1,152 @@
+package com.moviebooking.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Local stand-in for a card processor. Approves or declines on the first card digit, and can
+// inject log-normal latency, transient errors and declines, and hung calls to capacity-plan the
+// payment path. Tokens carry only that first digit.
+@Component
+@ConditionalOnProperty(name = "payment.gateway", havingValue = "simulator", matchIfMissing = true)
+public class SimulatedPaymentGateway implements PaymentGateway {
+
+    private static final double Z_99 = 2.326; // standard normal 99th percentile
+    private static final String TOKEN_PREFIX = "sim_";
+    private static final int REMEMBERED_CHARGES = 10000;
+
+    @Value("${payment.simulator.latency-median}")
+    private Long latencyMedian;
+
+    @Value("${payment.simulator.latency-p99}")
+    private Long latencyP99;
+
+    @Value("${payment.simulator.error-rate}")
+    private Double errorRate;
+
+    @Value("${payment.simulator.transient-decline-rate}")
+    private Double transientDeclineRate;
+
+    @Value("${payment.simulator.timeout-rate}")
+    private Double timeoutRate;
+
+    @Value("${payment.simulator.hang-duration}")
+    private Long hangDuration;
+
+    private double latencySigma;
+
+    // Final results by transactionId, so a repeated charge is answered without charging again;
+    // real processors keep idempotency keys for about a day, the most recent ones are enough here
+    private final Map<String, Result> charges = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Result> eldest) {
+            return size() > REMEMBERED_CHARGES;
+        }
+    };
+
+    @PostConstruct
+    public void init() {
+        // Log-normal latency with the configured median and 99th percentile
+        latencySigma = latencyMedian > 0 && latencyP99 > latencyMedian
+                ? Math.log((double) latencyP99 / latencyMedian) / Z_99
+                : 0;
+    }
+
+    @Override
+    public String tokenize(String cardNumber, String cardHolderName) {
+        // An empty card number is declined as invalid, like cards starting with '1'
+        char firstDigit = cardNumber == null || cardNumber.isEmpty() ? '1' : cardNumber.charAt(0);
+        return TOKEN_PREFIX + firstDigit + "_" + UUID.randomUUID().toString().replace("-", "");
+    }
+
+    @Override
+    public Result charge(String transactionId, Double amount, String cardToken) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        boolean hangs = random.nextDouble() < timeoutRate;
+        if (!hangs) {
+            sleep(Math.round(latencyMedian * Math.exp(latencySigma * random.nextGaussian())));
+        }
+
+        Result result;
+        synchronized (charges) {
+            result = charges.get(transactionId);
+            if (result == null) {
+                if (random.nextDouble() < errorRate) {
+                    throw new IllegalStateException("Simulated payment gateway error");
+                }
+                if (random.nextDouble() < transientDeclineRate) {
+                    return Result.retryable("Issuer temporarily unavailable");
+                }
+                result = decide(cardToken);
+                charges.put(transactionId, result);
+            }
+        }
+
+        if (hangs) {
+            // The card is charged but the reply never arrives, like a processor timing out, so
+            // the caller's retry has to be answered from the recorded result
+            sleep(hangDuration);
+        }
+        return result;
+    }
+
+    @Override
+    public Result refund(String transactionId, Double amount) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        sleep(Math.round(latencyMedian * Math.exp(latencySigma * random.nextGaussian())));
+        if (random.nextDouble() < errorRate) {
+            throw new IllegalStateException("Simulated payment gateway error");
+        }
+        return Result.approved();
+    }
+
+    private Result decide(String cardToken) {
+        // Simulation Logic:
+        // - Cards starting with '4' -> SUCCESS (Visa simulation)
+        // - Cards starting with '5' -> SUCCESS (Mastercard simulation)
+        // - Cards starting with '3' -> SUCCESS (Amex simulation)
+        // - Cards starting with '2' -> FAILED (Insufficient funds)
+        // - Cards starting with '1' -> FAILED (Invalid card)
+        // - All others -> FAILED (Card declined)
+
+        if (cardToken == null || !cardToken.startsWith(TOKEN_PREFIX) || cardToken.length() <= TOKEN_PREFIX.length()) {
+            return Result.declined("Invalid card number");
+        }
+
+        char firstDigit = cardToken.charAt(TOKEN_PREFIX.length());
+
+        switch (firstDigit) {
+            case '4':
+                return Result.approved();
+            case '5':
+                return Result.approved();
+            case '3':
+                return Result.approved();
+            case '2':
+                return Result.declined("Insufficient funds");
+            case '1':
+                return Result.declined("Invalid card number");
+            default:
+                return Result.declined("Card declined");
+        }
+    }
+
+    private void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            // Cancelled by the client timeout
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Payment gateway call interrupted");
+        }
+    }
+}
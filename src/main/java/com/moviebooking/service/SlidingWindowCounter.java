@@ -0,0 +1,42 @@
+package com.moviebooking.service;
+
+// Event count over a sliding window, kept as a ring of fixed-width buckets. The window slides
+// one bucket at a time, which is precise enough for rate limits and needs no per-event storage.
+public class SlidingWindowCounter {
+
+    private final long[] counts;
+    private final long[] bucketIds;
+    private final long bucketMillis;
+    private long lastSeen;
+
+    public SlidingWindowCounter(int buckets, long bucketMillis) {
+        this.counts = new long[buckets];
+        this.bucketIds = new long[buckets];
+        this.bucketMillis = bucketMillis;
+    }
+
+    // Records one event and returns the number of events in the window, including this one
+    public synchronized long incrementAndSum(long now) {
+        long bucket = now / bucketMillis;
+        int slot = (int) (bucket % counts.length);
+        if (bucketIds[slot] != bucket) {
+            bucketIds[slot] = bucket;
+            counts[slot] = 0;
+        }
+        counts[slot]++;
+        lastSeen = now;
+
+        long oldestBucket = bucket - counts.length + 1;
+        long sum = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (bucketIds[i] >= oldestBucket) {
+                sum += counts[i];
+            }
+        }
+        return sum;
+    }
+
+    public synchronized boolean isIdleSince(long cutoff) {
+        return lastSeen < cutoff;
+    }
+}
@@ -1,16 +1,30 @@
 package com.moviebooking.service;
 
 import com.google.zxing.WriterException;
+import com.moviebooking.dto.ticket.TicketValidationResponse;
+import com.moviebooking.exception.InvalidStateTransitionException;
 import com.moviebooking.exception.ResourceNotFoundException;
 import com.moviebooking.model.Booking;
+import com.moviebooking.model.Showtime;
 import com.moviebooking.model.Ticket;
 import com.moviebooking.repository.TicketRepository;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
-import java.io.IOException;
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.Optional;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
 
 @Service
 public class TicketService {
@@ -24,7 +38,22 @@ public class TicketService {
     @Autowired
     private QRCodeService qrCodeService;
 
-    public Ticket generateTicket(String bookingId) throws WriterException, IOException {
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ShowtimeService showtimeService;
+
+    @Autowired
+    private ValidTicketIndex validTicketIndex;
+
+    @Autowired
+    private AdmissionService admissionService;
+
+    @Value("${ticket.qr-validity-after-show}")
+    private Long qrValidityAfterShow;
+
+    public Ticket generateTicket(String bookingId) {
         // Verify booking exists and is confirmed
         Booking booking = bookingService.getBookingById(bookingId);
         
@@ -32,20 +61,58 @@ public class TicketService {
             throw new IllegalArgumentException("Ticket can only be generated for confirmed bookings");
         }
 
-        // Check if ticket already exists
-        Optional<Ticket> existingTicket = ticketRepository.findByBookingId(bookingId);
-        if (existingTicket.isPresent()) {
-            return existingTicket.get();
+        // Valid until a while after the show ends
+        Showtime showtime = showtimeService.getShowtimeById(booking.getShowtimeId());
+        LocalDateTime showEnd = showtime.getEndTime() != null ? showtime.getEndTime() : showtime.getStartTime();
+        Ticket ticket = new Ticket(bookingId, booking.getShowtimeId(), booking.getBookedSeatNumbers(),
+                showEnd.plus(Duration.ofMillis(qrValidityAfterShow)));
+
+        // The id is chosen up front so the signed payload can carry it
+        ObjectId ticketId = new ObjectId();
+        ticket.setId(ticketId.toHexString());
+        ticket.setQrCodeData(qrCodeService.createTicketPayload(ticket.getId(), ticket.getShowtimeId(),
+                ticket.getSeatNumbers(), ticket.getExpiresAt()));
+
+        // Upsert on the unique bookingId index: exactly one caller inserts the ticket, everyone
+        // else gets the existing one back, with no read beforehand
+        LocalDateTime now = LocalDateTime.now();
+        UpdateResult result;
+        try {
+            result = mongoTemplate.upsert(Query.query(Criteria.where("bookingId").is(bookingId)),
+                    new Update().setOnInsert("_id", ticketId)
+                            .setOnInsert("qrCodeData", ticket.getQrCodeData())
+                            .setOnInsert("showtimeId", ticket.getShowtimeId())
+                            .setOnInsert("seatNumbers", ticket.getSeatNumbers())
+                            .setOnInsert("expiresAt", ticket.getExpiresAt())
+                            .setOnInsert("generatedAt", ticket.getGeneratedAt())
+                            .setOnInsert("isValid", true)
+                            .setOnInsert("createdAt", now)
+                            .setOnInsert("updatedAt", now),
+                    Ticket.class);
+        } catch (DuplicateKeyException e) {
+            // Two upserts raced to insert; the other one won
+            return getTicketByBookingId(bookingId);
+        }
+        if (result.getUpsertedId() == null) {
+            return getTicketByBookingId(bookingId);
         }
 
-        // Create new ticket
-        Ticket ticket = new Ticket(bookingId);
-        
-        // Generate QR code image
-        String qrCodeBase64 = qrCodeService.generateQRCodeBase64(ticket.getQrCodeData());
-        ticket.setQrCodeImageBase64(qrCodeBase64);
+        // Only the payload is stored; the QR image is rendered when someone asks for it
+        ticket.setCreatedAt(now);
+        ticket.setUpdatedAt(now);
+        validTicketIndex.add(ticket.getShowtimeId(), ticket.getQrCodeData());
 
-        return ticketRepository.save(ticket);
+        return ticket;
+    }
+
+    // Fills in the QR image for clients that show the ticket
+    public Ticket withQrCodeImage(Ticket ticket) throws WriterException {
+        ticket.setQrCodeImageBase64(Base64.getEncoder().encodeToString(getQrCodePng(ticket)));
+        return ticket;
+    }
+
+    public byte[] getQrCodePng(Ticket ticket) throws WriterException {
+        return qrCodeService.getQRCodePng(ticket.getQrCodeData());
     }
 
     public Ticket getTicketByBookingId(String bookingId) {
@@ -58,7 +125,99 @@ public class TicketService {
                 .orElseThrow(() -> new ResourceNotFoundException("Ticket", "id", id));
     }
 
-    public Ticket validateTicket(String qrCodeData) {
+    public TicketValidationResponse validateTicket(String qrCodeData) {
+        QRCodeService.TicketPayload payload = qrCodeService.verifyTicketPayload(qrCodeData);
+        if (payload == null) {
+            return new TicketValidationResponse(validateLegacyTicket(qrCodeData));
+        }
+
+        // The signature vouches for the ticket, showtime and seats, so this is CPU-only so far
+        if (payload.isExpired()) {
+            throw new IllegalArgumentException("Ticket has expired");
+        }
+
+        // Warm showtimes answer from memory. A miss is not a rejection: the ticket may be newer
+        // than this node's last refresh, so it falls through to the database check.
+        TicketValidationResponse validated = new TicketValidationResponse(payload.getTicketId(),
+                payload.getShowtimeId(), payload.getSeatNumbers(), payload.getExpiresAt());
+        if (validTicketIndex.contains(payload.getShowtimeId(), qrCodeData)) {
+            return validated;
+        }
+
+        // One lookup by id for revocation; cancelling a booking invalidates its ticket. Only the
+        // validity flag is read, the rest of the answer comes from the signed payload.
+        Query ticketQuery = Query.query(Criteria.where("id").is(payload.getTicketId()));
+        ticketQuery.fields().include("isValid");
+        Ticket ticket = mongoTemplate.findOne(ticketQuery, Ticket.class);
+        if (ticket == null) {
+            throw new ResourceNotFoundException("Ticket", "id", payload.getTicketId());
+        }
+        if (!ticket.isValid()) {
+            throw new IllegalArgumentException("Ticket is no longer valid");
+        }
+        return validated;
+    }
+
+    // Scan and admit: the ticket is marked used by one conditional update, so two gates scanning
+    // the same QR code at once admit it exactly once
+    public Ticket admitTicket(String qrCodeData) {
+        QRCodeService.TicketPayload payload = qrCodeService.verifyTicketPayload(qrCodeData);
+        if (payload == null) {
+            Ticket legacyTicket = validateLegacyTicket(qrCodeData);
+            return markAdmitted(legacyTicket.getId(), legacyTicket.getShowtimeId());
+        }
+        if (payload.isExpired()) {
+            throw new IllegalArgumentException("Ticket has expired");
+        }
+
+        // A repeat scan of a ticket this node already admitted is turned away without touching Mongo
+        if (admissionService.isAdmitted(payload.getShowtimeId(), payload.getTicketId())) {
+            throw new InvalidStateTransitionException("Ticket was already used");
+        }
+        return markAdmitted(payload.getTicketId(), payload.getShowtimeId());
+    }
+
+    private Ticket markAdmitted(String ticketId, String showtimeId) {
+        LocalDateTime now = LocalDateTime.now();
+        Query admitQuery = Query.query(Criteria.where("id").is(ticketId)
+                .and("isValid").is(true)
+                .and("admittedAt").is(null));
+        admitQuery.fields().exclude("qrCodeImageBase64");
+        Ticket ticket = mongoTemplate.findAndModify(admitQuery,
+                new Update().set("admittedAt", now).set("updatedAt", now),
+                FindAndModifyOptions.options().returnNew(true),
+                Ticket.class);
+        if (ticket != null) {
+            admissionService.recordAdmitted(showtimeId, ticketId, ticket.getSeatNumbers());
+            return ticket;
+        }
+
+        // The update matched nothing: say why
+        Query ticketQuery = Query.query(Criteria.where("id").is(ticketId));
+        ticketQuery.fields().exclude("qrCodeImageBase64");
+        Ticket current = mongoTemplate.findOne(ticketQuery, Ticket.class);
+        if (current == null) {
+            throw new ResourceNotFoundException("Ticket", "id", ticketId);
+        }
+        if (current.getAdmittedAt() != null) {
+            admissionService.recordAdmitted(showtimeId, ticketId, current.getSeatNumbers());
+            throw new InvalidStateTransitionException("Ticket was already used at " + current.getAdmittedAt());
+        }
+        throw new IllegalArgumentException("Ticket is no longer valid");
+    }
+
+    public Map<String, Object> getAdmissionCounts(String showtimeId) {
+        // Verify showtime exists
+        showtimeService.getShowtimeById(showtimeId);
+        return admissionService.getAdmissionCounts(showtimeId);
+    }
+
+    public List<Map<String, Object>> getAllAdmissionCounts() {
+        return admissionService.getAllAdmissionCounts();
+    }
+
+    // Tickets issued before signed payloads: look the ticket and its booking up
+    private Ticket validateLegacyTicket(String qrCodeData) {
         // Validate QR code format
         if (!qrCodeService.validateQRCodeData(qrCodeData)) {
             throw new IllegalArgumentException("Invalid QR code format");
@@ -82,28 +241,39 @@ public class TicketService {
         return ticket;
     }
 
+    // Only isValid is written, so an admission recorded at the same moment is never overwritten
     public void invalidateTicket(String ticketId) {
-        Ticket ticket = getTicketById(ticketId);
-        ticket.setValid(false);
-        ticketRepository.save(ticket);
+        Ticket ticket = invalidate(Query.query(Criteria.where("id").is(ticketId)));
+        if (ticket == null) {
+            throw new ResourceNotFoundException("Ticket", "id", ticketId);
+        }
     }
 
     public void invalidateTicketByBookingId(String bookingId) {
-        Optional<Ticket> ticketOpt = ticketRepository.findByBookingId(bookingId);
-        if (ticketOpt.isPresent()) {
-            Ticket ticket = ticketOpt.get();
-            ticket.setValid(false);
-            ticketRepository.save(ticket);
-        }
+        invalidate(Query.query(Criteria.where("bookingId").is(bookingId)));
     }
 
-    // This method should be called automatically when a payment is successful
-    public void handlePaymentSuccess(String bookingId) {
-        try {
-            generateTicket(bookingId);
-        } catch (WriterException | IOException e) {
-            // Log error but don't fail the payment process
-            System.err.println("Failed to generate ticket for booking " + bookingId + ": " + e.getMessage());
+    private Ticket invalidate(Query ticketQuery) {
+        ticketQuery.fields().include("showtimeId").include("qrCodeData");
+        Ticket ticket = mongoTemplate.findAndModify(ticketQuery,
+                new Update().set("isValid", false).set("updatedAt", LocalDateTime.now()),
+                Ticket.class);
+        if (ticket != null) {
+            validTicketIndex.remove(ticket.getShowtimeId(), ticket.getQrCodeData());
         }
+        return ticket;
+    }
+
+    // Strips images stored by older versions, which rendered them at issuance
+    public long purgeStoredQrCodeImages() {
+        return mongoTemplate.updateMulti(Query.query(Criteria.where("qrCodeImageBase64").exists(true)),
+                new Update().unset("qrCodeImageBase64"),
+                Ticket.class).getModifiedCount();
+    }
+
+    public int warmUpShowtime(String showtimeId) {
+        // Verify showtime exists
+        showtimeService.getShowtimeById(showtimeId);
+        return validTicketIndex.warmUp(showtimeId);
     }
 }
@@ -0,0 +1,147 @@
+package com.moviebooking.service;
+
+import com.moviebooking.model.Showtime;
+import com.moviebooking.model.Ticket;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+// Valid tickets of upcoming showtimes, kept per showtime as a set of 64-bit qrCodeData hashes,
+// so gate scans for a warm showtime are answered without Mongo. Local issuance and invalidation
+// update the set immediately; changes made on other nodes arrive with the periodic refresh.
+@Service
+public class ValidTicketIndex {
+
+    private static final Duration REFRESH_OVERLAP = Duration.ofSeconds(5); // tolerate clock skew
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${ticket.gate-warmup-window}")
+    private Long warmupWindow;
+
+    private final Map<String, WarmShowtime> showtimes = new ConcurrentHashMap<>();
+
+    private volatile LocalDateTime lastRefresh;
+
+    public boolean contains(String showtimeId, String qrCodeData) {
+        WarmShowtime showtime = showtimes.get(showtimeId);
+        return showtime != null && showtime.tickets.contains(hash(qrCodeData));
+    }
+
+    public void add(String showtimeId, String qrCodeData) {
+        WarmShowtime showtime = showtimes.get(showtimeId);
+        if (showtime != null) {
+            showtime.tickets.add(hash(qrCodeData));
+        }
+    }
+
+    public void remove(String showtimeId, String qrCodeData) {
+        WarmShowtime showtime = showtimes.get(showtimeId);
+        if (showtime != null) {
+            showtime.tickets.remove(hash(qrCodeData));
+        }
+    }
+
+    public void evict(String showtimeId) {
+        showtimes.remove(showtimeId);
+    }
+
+    // Loads one showtime now, e.g. right before doors open; returns the number of valid tickets
+    public int warmUp(String showtimeId) {
+        Showtime showtime = mongoTemplate.findById(showtimeId, Showtime.class);
+        if (showtime == null) {
+            return 0;
+        }
+        return load(showtime).tickets.size();
+    }
+
+    // Warms showtimes starting within the window, drops finished ones and applies ticket
+    // changes made since the last pass, including those from other nodes
+    @Scheduled(fixedDelayString = "${ticket.gate-refresh-interval}")
+    public void refresh() {
+        LocalDateTime now = LocalDateTime.now();
+        showtimes.values().removeIf(showtime -> showtime.endsAt != null && showtime.endsAt.isBefore(now));
+
+        Query upcomingQuery = Query.query(Criteria.where("active").is(true)
+                .and("startTime").lt(now.plus(Duration.ofMillis(warmupWindow)))
+                .and("endTime").gt(now));
+        upcomingQuery.fields().include("startTime").include("endTime");
+        for (Showtime showtime : mongoTemplate.find(upcomingQuery, Showtime.class)) {
+            if (!showtimes.containsKey(showtime.getId())) {
+                load(showtime);
+            }
+        }
+
+        LocalDateTime since = lastRefresh;
+        lastRefresh = now;
+        if (since != null && !showtimes.isEmpty()) {
+            applyChanges(new ArrayList<>(showtimes.keySet()), since.minus(REFRESH_OVERLAP));
+        }
+    }
+
+    private WarmShowtime load(Showtime showtime) {
+        Query ticketQuery = Query.query(Criteria.where("showtimeId").is(showtime.getId()).and("isValid").is(true));
+        ticketQuery.fields().include("qrCodeData");
+        long count = mongoTemplate.count(ticketQuery, Ticket.class);
+
+        WarmShowtime warm = new WarmShowtime(new LongHashSet((int) count), showtime.getEndTime());
+        try (Stream<Ticket> tickets = mongoTemplate.stream(ticketQuery, Ticket.class)) {
+            tickets.forEach(ticket -> warm.tickets.add(hash(ticket.getQrCodeData())));
+        }
+        showtimes.put(showtime.getId(), warm);
+        return warm;
+    }
+
+    private void applyChanges(List<String> showtimeIds, LocalDateTime since) {
+        Query changedQuery = Query.query(Criteria.where("showtimeId").in(showtimeIds).and("updatedAt").gte(since));
+        changedQuery.fields().include("showtimeId").include("qrCodeData").include("isValid");
+        try (Stream<Ticket> tickets = mongoTemplate.stream(changedQuery, Ticket.class)) {
+            tickets.forEach(ticket -> {
+                if (ticket.isValid()) {
+                    add(ticket.getShowtimeId(), ticket.getQrCodeData());
+                } else {
+                    remove(ticket.getShowtimeId(), ticket.getQrCodeData());
+                }
+            });
+        }
+    }
+
+    // FNV-1a with a murmur finalizer. Not cryptographic, and it does not need to be: payloads are
+    // signature-checked before the set is consulted.
+    static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static class WarmShowtime {
+        private final LongHashSet tickets;
+        private final LocalDateTime endsAt;
+
+        private WarmShowtime(LongHashSet tickets, LocalDateTime endsAt) {
+            this.tickets = tickets;
+            this.endsAt = endsAt;
+        }
+    }
+}
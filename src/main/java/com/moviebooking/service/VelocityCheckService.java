@@ -0,0 +1,86 @@
+package com.moviebooking.service;
+
+import com.moviebooking.exception.VelocityLimitExceededException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+// Fraud screening that runs before anything touches Mongo or the gateway. Counts payment
+// attempts per user, per card fingerprint (last four digits plus holder name) and per client IP
+// over a sliding window, and rejects an attempt once any of them is over its limit.
+@Service
+public class VelocityCheckService {
+
+    @Value("${velocity.window}")
+    private Long window;
+
+    @Value("${velocity.buckets}")
+    private Integer buckets;
+
+    @Value("${velocity.user-limit}")
+    private Integer userLimit;
+
+    @Value("${velocity.card-limit}")
+    private Integer cardLimit;
+
+    @Value("${velocity.ip-limit}")
+    private Integer ipLimit;
+
+    @Value("${velocity.max-keys}")
+    private Integer maxKeys;
+
+    // In access order, so once maxKeys are tracked the key used least recently makes room for a
+    // new one; a flood of fresh keys cannot switch the check off for everyone else. Guarded by
+    // its own lock, which is held only for the lookup.
+    private Map<String, SlidingWindowCounter> counters;
+
+    @PostConstruct
+    public void init() {
+        counters = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SlidingWindowCounter> eldest) {
+                return size() > maxKeys;
+            }
+        };
+    }
+
+    public void check(String userKey, String cardNumber, String cardHolderName, String clientIp) {
+        long now = System.currentTimeMillis();
+        // Every dimension counts the attempt, so a burst is throttled on all of them at once
+        boolean userExceeded = record("u:" + userKey, userLimit, now);
+        boolean cardExceeded = record("c:" + cardFingerprint(cardNumber, cardHolderName), cardLimit, now);
+        boolean ipExceeded = clientIp != null && record("i:" + clientIp, ipLimit, now);
+        if (userExceeded || cardExceeded || ipExceeded) {
+            throw new VelocityLimitExceededException("Too many payment attempts, please try again later");
+        }
+    }
+
+    private boolean record(String key, int limit, long now) {
+        SlidingWindowCounter counter;
+        synchronized (counters) {
+            counter = counters.computeIfAbsent(key, k -> new SlidingWindowCounter(buckets, window / buckets));
+        }
+        return counter.incrementAndSum(now) > limit;
+    }
+
+    // Same shape as the masked card stored on Payment, so no full card number is kept here
+    private String cardFingerprint(String cardNumber, String cardHolderName) {
+        String lastFour = cardNumber == null || cardNumber.length() < 4
+                ? "****" : cardNumber.substring(cardNumber.length() - 4);
+        String holder = cardHolderName == null ? "" : cardHolderName.trim().toLowerCase(Locale.ROOT);
+        return lastFour + ":" + holder;
+    }
+
+    @Scheduled(fixedDelayString = "${velocity.window}")
+    public void purgeIdle() {
+        long cutoff = System.currentTimeMillis() - window;
+        synchronized (counters) {
+            counters.values().removeIf(counter -> counter.isIdleSince(cutoff));
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.moviebooking.service;
+
+import com.moviebooking.dto.waitingroom.WaitingRoomStatus;
+import com.moviebooking.exception.AdmissionRequiredException;
+import com.moviebooking.exception.ResourceNotFoundException;
+import com.moviebooking.exception.ServiceUnavailableException;
+import com.moviebooking.model.WaitingRoom;
+import com.moviebooking.security.HmacSigner;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+@Service
+public class WaitingRoomService {
+
+    @Autowired
+    private WaitingRoomStore waitingRoomStore;
+
+    @Autowired
+    private ShowtimeService showtimeService;
+
+    @Value("${waiting-room.secret}")
+    private String secret;
+
+    @Value("${waiting-room.token-expiration}")
+    private Long tokenExpiration;
+
+    @Value("${waiting-room.tick-interval}")
+    private Long tickInterval;
+
+    @Value("${booking.max-concurrent}")
+    private Integer maxConcurrentBookings;
+
+    @Value("${booking.permit-wait}")
+    private Long permitWait;
+
+    private HmacSigner signer;
+
+    private Semaphore bookingPermits;
+
+    @PostConstruct
+    public void init() {
+        signer = new HmacSigner(secret);
+        bookingPermits = new Semaphore(maxConcurrentBookings);
+    }
+
+    public WaitingRoom openRoom(String showtimeId, double admitRate) {
+        if (admitRate <= 0) {
+            throw new IllegalArgumentException("Admit rate must be positive");
+        }
+        // Verify showtime exists
+        showtimeService.getShowtimeById(showtimeId);
+        return waitingRoomStore.open(new WaitingRoom(showtimeId, admitRate, System.currentTimeMillis()));
+    }
+
+    public void closeRoom(String showtimeId) {
+        waitingRoomStore.close(showtimeId);
+    }
+
+    public WaitingRoom getRoom(String showtimeId) {
+        return waitingRoomStore.find(showtimeId)
+                .orElseThrow(() -> new ResourceNotFoundException("Waiting room", "showtimeId", showtimeId));
+    }
+
+    public WaitingRoomStatus join(String showtimeId, String userId) {
+        long sequence = waitingRoomStore.enqueue(showtimeId);
+        if (sequence < 0) {
+            // No waiting room for this showtime, booking is open to everyone
+            return WaitingRoomStatus.admitted(showtimeId, null);
+        }
+        String queueTicket = signer.sign("q|" + showtimeId + "|" + userId + "|" + sequence);
+        return statusFor(getRoom(showtimeId), userId, queueTicket, sequence);
+    }
+
+    public WaitingRoomStatus getStatus(String showtimeId, String userId, String queueTicket) {
+        Optional<WaitingRoom> room = waitingRoomStore.find(showtimeId);
+        if (room.isEmpty()) {
+            return WaitingRoomStatus.admitted(showtimeId, null);
+        }
+
+        String[] parts = parse(queueTicket, "q", 4);
+        if (parts == null || !parts[1].equals(showtimeId) || !parts[2].equals(userId)) {
+            throw new IllegalArgumentException("Invalid queue ticket");
+        }
+        return statusFor(room.get(), userId, queueTicket, Long.parseLong(parts[3]));
+    }
+
+    // Booking endpoints run through this; showtimes without an open room need no token. Each
+    // admission books once: its sequence is marked used up front and handed back if the booking fails.
+    public <T> T withAdmission(String showtimeId, String userId, String admissionToken, Supplier<T> action) {
+        if (waitingRoomStore.find(showtimeId).isEmpty()) {
+            return action.get();
+        }
+
+        String[] parts = parse(admissionToken, "a", 5);
+        if (parts == null || !parts[1].equals(showtimeId) || !parts[2].equals(userId)) {
+            throw new AdmissionRequiredException("Join the waiting room before booking this showtime");
+        }
+        if (Long.parseLong(parts[4]) < System.currentTimeMillis()) {
+            throw new AdmissionRequiredException("Admission token has expired, please rejoin the waiting room");
+        }
+        long sequence = Long.parseLong(parts[3]);
+        if (!waitingRoomStore.consume(showtimeId, sequence)) {
+            throw new AdmissionRequiredException("Admission token has already been used, please rejoin the waiting room");
+        }
+
+        try {
+            return action.get();
+        } catch (RuntimeException e) {
+            waitingRoomStore.release(showtimeId, sequence);
+            throw e;
+        }
+    }
+
+    // Admits up to admitRate per second of waiting time. A late tick still releases at most one
+    // interval's worth, and credit is dropped once the queue is empty so an idle room never bursts.
+    @Scheduled(fixedDelayString = "${waiting-room.tick-interval}")
+    public void advanceRooms() {
+        long now = System.currentTimeMillis();
+        for (WaitingRoom room : waitingRoomStore.findAll()) {
+            long elapsed = Math.min(Math.max(0, now - room.getLastTickAt()), tickInterval);
+            double credit = room.getAdmitCredit() + elapsed / 1000.0 * room.getAdmitRate();
+            long admitted = room.getAdmittedSequence() + (long) credit;
+            credit -= (long) credit;
+            if (admitted >= room.getLastSequence()) {
+                admitted = room.getLastSequence();
+                credit = 0;
+            }
+            waitingRoomStore.advance(room.getShowtimeId(), room.getLastTickAt(), now, admitted, credit);
+        }
+    }
+
+    // Bulkhead around the booking path so a burst of admitted users cannot exhaust the Mongo pool
+    public <T> T withBookingPermit(Supplier<T> action) {
+        boolean acquired;
+        try {
+            acquired = bookingPermits.tryAcquire(permitWait, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            throw new ServiceUnavailableException("Booking service is busy, please try again shortly");
+        }
+
+        try {
+            return action.get();
+        } finally {
+            bookingPermits.release();
+        }
+    }
+
+    private WaitingRoomStatus statusFor(WaitingRoom room, String userId, String queueTicket, long sequence) {
+        long position = sequence - room.getAdmittedSequence();
+        if (position <= 0) {
+            long expiresAt = System.currentTimeMillis() + tokenExpiration;
+            String admissionToken = signer.sign("a|" + room.getShowtimeId() + "|" + userId + "|" + sequence + "|" + expiresAt);
+            return WaitingRoomStatus.admitted(room.getShowtimeId(), admissionToken);
+        }
+        long estimatedWaitSeconds = (long) Math.ceil(position / room.getAdmitRate());
+        return WaitingRoomStatus.waiting(room.getShowtimeId(), queueTicket, position, estimatedWaitSeconds);
+    }
+
+    private String[] parse(String token, String type, int fields) {
+        String payload = signer.verify(token);
+        if (payload == null) {
+            return null;
+        }
+        String[] parts = payload.split("\\|");
+        return parts.length == fields && parts[0].equals(type) ? parts : null;
+    }
+}
@@ -0,0 +1,28 @@
+package com.moviebooking.service;
+
+import com.moviebooking.model.WaitingRoom;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface WaitingRoomStore {
+
+    WaitingRoom open(WaitingRoom room);
+
+    void close(String showtimeId);
+
+    Optional<WaitingRoom> find(String showtimeId);
+
+    List<WaitingRoom> findAll();
+
+    // Hands out the next queue ticket number, or -1 if no room is open for the showtime
+    long enqueue(String showtimeId);
+
+    // Moves the admitted sequence forward only if no other tick has run since expectedTickAt
+    boolean advance(String showtimeId, long expectedTickAt, long tickAt, long admittedSequence, double admitCredit);
+
+    // Marks an admission as used; false if it already was
+    boolean consume(String showtimeId, long sequence);
+
+    void release(String showtimeId, long sequence);
+}
@@ -0,0 +1,50 @@
+package com.moviebooking.security;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class HmacSignerTest {
+
+    private final HmacSigner signer = new HmacSigner("test-secret-0123456789abcdef");
+
+    @Test
+    void verifyReturnsTheSignedPayload() {
+        String payload = "{\"t\":\"ticket-1\",\"seats\":[\"A1\",\"A2\"]}";
+
+        assertEquals(payload, signer.verify(signer.sign(payload)));
+    }
+
+    @Test
+    void tamperedPayloadOrSignatureIsRejected() {
+        String token = signer.sign("ticket-1");
+        int separator = token.indexOf('.');
+        String otherPayload = signer.sign("ticket-2").substring(0, token.indexOf('.'));
+
+        assertNull(signer.verify(otherPayload + token.substring(separator)));
+        assertNull(signer.verify(token.substring(0, separator + 1) + flipFirst(token.substring(separator + 1))));
+    }
+
+    @Test
+    void tokenSignedWithAnotherSecretIsRejected() {
+        String token = new HmacSigner("another-secret-0123456789abcdef").sign("ticket-1");
+
+        assertNull(signer.verify(token));
+    }
+
+    @Test
+    void malformedTokensAreRejected() {
+        assertNull(signer.verify(null));
+        assertNull(signer.verify(""));
+        assertNull(signer.verify("no-separator"));
+        assertNull(signer.verify(".signature"));
+        assertNull(signer.verify("payload."));
+        assertNull(signer.verify("not*base64.not*base64"));
+    }
+
+    private static String flipFirst(String value) {
+        char first = value.charAt(0);
+        return (first == 'A' ? 'B' : 'A') + value.substring(1);
+    }
+}
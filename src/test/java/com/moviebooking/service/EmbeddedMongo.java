@@ -0,0 +1,52 @@
+package com.moviebooking.service;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.moviebooking.model.SeatClaim;
+import de.flapdoodle.embed.mongo.commands.ServerAddress;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.mongo.transitions.Mongod;
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.reverse.TransitionWalker;
+import org.junit.jupiter.api.Assumptions;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+
+// One mongod per test JVM. Tests are skipped, not failed, where the binary cannot be fetched.
+final class EmbeddedMongo {
+
+    private static TransitionWalker.ReachedState<RunningMongodProcess> mongod;
+    private static MongoClient client;
+    private static RuntimeException startFailure;
+
+    private EmbeddedMongo() {}
+
+    static synchronized MongoTemplate template(String database) {
+        if (mongod == null && startFailure == null) {
+            try {
+                mongod = Mongod.instance().start(Version.Main.V6_0);
+                ServerAddress address = mongod.current().getServerAddress();
+                client = MongoClients.create("mongodb://" + address.getHost() + ":" + address.getPort());
+                Runtime.getRuntime().addShutdownHook(new Thread(EmbeddedMongo::stop));
+            } catch (RuntimeException e) {
+                startFailure = e;
+            }
+        }
+        Assumptions.assumeTrue(startFailure == null, () -> "Embedded MongoDB unavailable: " + startFailure);
+
+        MongoTemplate template = new MongoTemplate(client, database);
+        template.getDb().drop();
+        // The index @CompoundIndex declares on SeatClaim; the application creates it on startup
+        template.indexOps(SeatClaim.class).ensureIndex(new Index()
+                .on("showtimeId", Sort.Direction.ASC)
+                .on("seatNumber", Sort.Direction.ASC)
+                .unique());
+        return template;
+    }
+
+    private static synchronized void stop() {
+        client.close();
+        mongod.close();
+    }
+}
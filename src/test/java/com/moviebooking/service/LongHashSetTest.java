@@ -0,0 +1,80 @@
+package com.moviebooking.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LongHashSetTest {
+
+    @Test
+    void addContainsAndRemove() {
+        LongHashSet set = new LongHashSet(4);
+
+        assertTrue(set.add(42));
+        assertFalse(set.add(42));
+        assertTrue(set.contains(42));
+        assertFalse(set.contains(43));
+
+        assertTrue(set.remove(42));
+        assertFalse(set.remove(42));
+        assertFalse(set.contains(42));
+        assertEquals(0, set.size());
+    }
+
+    @Test
+    void growsPastItsExpectedSize() {
+        LongHashSet set = new LongHashSet(4);
+        for (long value = 1; value <= 1000; value++) {
+            set.add(value * 0x9e3779b97f4a7c15L);
+        }
+
+        assertEquals(1000, set.size());
+        for (long value = 1; value <= 1000; value++) {
+            assertTrue(set.contains(value * 0x9e3779b97f4a7c15L));
+        }
+    }
+
+    @Test
+    void removingFromAProbeRunKeepsTheRestReachable() {
+        // With 16 slots, these values share a home slot, and the second group wraps past the end
+        LongHashSet set = new LongHashSet(4);
+        long[] values = {16, 32, 48, 15, 31, 47};
+        for (long value : values) {
+            set.add(value);
+        }
+
+        assertTrue(set.remove(16));
+        assertTrue(set.remove(15));
+        assertTrue(set.contains(32));
+        assertTrue(set.contains(48));
+        assertTrue(set.contains(31));
+        assertTrue(set.contains(47));
+        assertEquals(4, set.size());
+    }
+
+    @Test
+    void matchesAHashSetUnderRandomOperations() {
+        LongHashSet set = new LongHashSet(16);
+        Set<Long> expected = new HashSet<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            long value = 1 + random.nextInt(500);
+            if (random.nextBoolean()) {
+                assertEquals(expected.add(value), set.add(value));
+            } else {
+                assertEquals(expected.remove(value), set.remove(value));
+            }
+        }
+
+        assertEquals(expected.size(), set.size());
+        for (long value = 1; value <= 500; value++) {
+            assertEquals(expected.contains(value), set.contains(value));
+        }
+    }
+}
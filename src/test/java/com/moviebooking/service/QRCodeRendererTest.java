@@ -0,0 +1,53 @@
+package com.moviebooking.service;
+
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.qrcode.QRCodeReader;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QRCodeRendererTest {
+
+    private static final String PAYLOAD = "eyJ0IjoidGlja2V0LTEiLCJzIjoic2hvd3RpbWUtMSJ9.c2lnbmF0dXJl";
+
+    @Test
+    void renderedPngDecodesBackToTheData() throws Exception {
+        BufferedImage image = read(QRCodeRenderer.renderPng(PAYLOAD, 250));
+
+        String decoded = new QRCodeReader().decode(
+                new BinaryBitmap(new HybridBinarizer(new BufferedImageLuminanceSource(image)))).getText();
+        assertEquals(PAYLOAD, decoded);
+    }
+
+    @Test
+    void imageIsTheLargestWholePixelScaleThatFits() throws Exception {
+        BufferedImage oneToOne = read(QRCodeRenderer.renderPng(PAYLOAD, 1));
+        BufferedImage scaled = read(QRCodeRenderer.renderPng(PAYLOAD, 250));
+
+        int codeSize = oneToOne.getWidth();
+        assertEquals(codeSize, oneToOne.getHeight());
+        assertEquals(scaled.getWidth(), scaled.getHeight());
+        assertEquals(0, scaled.getWidth() % codeSize);
+        assertTrue(scaled.getWidth() <= 250);
+        assertTrue(scaled.getWidth() + codeSize > 250);
+    }
+
+    @Test
+    void quietZoneIsWhite() throws Exception {
+        BufferedImage image = read(QRCodeRenderer.renderPng(PAYLOAD, 250));
+
+        assertEquals(0xffffffff, image.getRGB(0, 0));
+        assertEquals(0xffffffff, image.getRGB(image.getWidth() - 1, image.getHeight() - 1));
+    }
+
+    private static BufferedImage read(byte[] png) throws Exception {
+        return ImageIO.read(new ByteArrayInputStream(png));
+    }
+}
@@ -0,0 +1,93 @@
+package com.moviebooking.service;
+
+import com.moviebooking.model.Booking;
+import com.moviebooking.model.SeatClaim;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SeatClaimRepairServiceTest {
+
+    private static final String SHOWTIME_ID = "showtime-1";
+
+    private MongoTemplate mongoTemplate;
+    private SeatClaimRepairService seatClaimRepairService;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = EmbeddedMongo.template("seat_claim_repair_test");
+        SeatInventoryService seatInventoryService = new SeatInventoryService();
+        seatClaimRepairService = new SeatClaimRepairService();
+        ReflectionTestUtils.setField(seatClaimRepairService, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(seatClaimRepairService, "seatInventoryService", seatInventoryService);
+    }
+
+    @Test
+    void removesOldClaimsWhoseBookingIsMissingOrReleased() {
+        String confirmed = booking(Booking.BookingStatus.CONFIRMED, "A1");
+        String expired = booking(Booking.BookingStatus.EXPIRED, "A2");
+        LocalDateTime old = LocalDateTime.now().minusHours(1);
+        claim(confirmed, "A1", old);
+        claim(expired, "A2", old);
+        claim(new ObjectId().toHexString(), "A3", old);
+        // Could still be a booking that is being saved
+        claim(new ObjectId().toHexString(), "A4", LocalDateTime.now());
+
+        long removed = seatClaimRepairService.repairOrphanedClaims();
+
+        assertEquals(2, removed);
+        assertEquals(List.of("A1", "A4"), claimedSeats());
+    }
+
+    @Test
+    void backfillClaimsSeatsOfExistingBookingsAndReportsDoubleSales() {
+        String first = booking(Booking.BookingStatus.CONFIRMED, "B1", "B2");
+        String second = booking(Booking.BookingStatus.PENDING_PAYMENT, "B2", "B3");
+        booking(Booking.BookingStatus.CANCELLED, "B4");
+
+        Map<String, Object> result = seatClaimRepairService.backfillClaims();
+
+        assertEquals(List.of("B1", "B2", "B3"), claimedSeats());
+        assertEquals(first, claimOf("B2").getBookingId());
+        assertEquals(Set.of(second), result.get("conflictingBookingIds"));
+
+        // A second run changes nothing
+        assertEquals(0L, seatClaimRepairService.backfillClaims().get("claimed"));
+    }
+
+    private String booking(Booking.BookingStatus status, String... seats) {
+        Booking booking = new Booking(SHOWTIME_ID, "user-1", List.of(seats), 10.0 * seats.length);
+        booking.setId(new ObjectId().toHexString());
+        booking.setStatus(status);
+        mongoTemplate.insert(booking);
+        return booking.getId();
+    }
+
+    private void claim(String bookingId, String seat, LocalDateTime createdAt) {
+        SeatClaim claim = new SeatClaim(SHOWTIME_ID, seat, bookingId);
+        claim.setCreatedAt(createdAt);
+        mongoTemplate.insert(claim);
+    }
+
+    private SeatClaim claimOf(String seat) {
+        return mongoTemplate.findOne(Query.query(Criteria.where("seatNumber").is(seat)), SeatClaim.class);
+    }
+
+    private List<String> claimedSeats() {
+        return mongoTemplate.findAll(SeatClaim.class).stream()
+                .map(SeatClaim::getSeatNumber)
+                .sorted()
+                .toList();
+    }
+}
@@ -0,0 +1,133 @@
+package com.moviebooking.service;
+
+import com.moviebooking.exception.SeatUnavailableException;
+import com.moviebooking.model.SeatClaim;
+import com.moviebooking.repository.SeatClaimRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class SeatInventoryServiceTest {
+
+    private static final String SHOWTIME_ID = "showtime-1";
+    private static final int THREADS = 16;
+
+    private MongoTemplate mongoTemplate;
+    private SeatInventoryService seatInventoryService;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = EmbeddedMongo.template("seat_inventory_test");
+        seatInventoryService = new SeatInventoryService();
+        ReflectionTestUtils.setField(seatInventoryService, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(seatInventoryService, "seatClaimRepository",
+                new MongoRepositoryFactory(mongoTemplate).getRepository(SeatClaimRepository.class));
+        ReflectionTestUtils.setField(seatInventoryService, "seatMapStreamService", Mockito.mock(SeatMapStreamService.class));
+    }
+
+    @Test
+    void concurrentBookingsOfTheSameSeatsHaveExactlyOneWinner() throws Exception {
+        List<String> seats = List.of("A1", "A2", "A3");
+        List<Callable<Boolean>> attempts = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            String bookingId = "booking-" + i;
+            attempts.add(() -> claim(bookingId, seats));
+        }
+
+        List<Boolean> results = runTogether(attempts);
+
+        assertEquals(1, results.stream().filter(won -> won).count());
+        List<SeatClaim> claims = mongoTemplate.findAll(SeatClaim.class);
+        assertEquals(seats.size(), claims.size());
+        assertEquals(1, claims.stream().map(SeatClaim::getBookingId).distinct().count());
+    }
+
+    @Test
+    void overlappingBookingsNeverShareASeatAndClaimAllOrNothing() throws Exception {
+        Random random = new Random(42);
+        Map<String, List<String>> requested = new HashMap<>();
+        List<Callable<Boolean>> attempts = new ArrayList<>();
+        for (int i = 0; i < THREADS * 4; i++) {
+            String bookingId = "booking-" + i;
+            List<String> seats = random.ints(0, 12).distinct().limit(3)
+                    .mapToObj(seat -> "B" + (seat + 1))
+                    .collect(Collectors.toList());
+            requested.put(bookingId, seats);
+            attempts.add(() -> claim(bookingId, seats));
+        }
+
+        runTogether(attempts);
+
+        Map<String, List<String>> claimedByBooking = mongoTemplate.findAll(SeatClaim.class).stream()
+                .collect(Collectors.groupingBy(SeatClaim::getBookingId,
+                        Collectors.mapping(SeatClaim::getSeatNumber, Collectors.toList())));
+        claimedByBooking.forEach((bookingId, seats) ->
+                assertEquals(requested.get(bookingId).size(), seats.size(), bookingId + " holds part of its seats"));
+        long claimedSeats = claimedByBooking.values().stream().mapToLong(List::size).sum();
+        long distinctSeats = claimedByBooking.values().stream().flatMap(List::stream).distinct().count();
+        assertEquals(distinctSeats, claimedSeats);
+    }
+
+    @Test
+    void losingBookingLeavesNoClaimsBehind() {
+        claim("winner", List.of("C2"));
+
+        boolean won = claim("loser", List.of("C1", "C2", "C3"));
+
+        assertFalse(won);
+        assertEquals(0, mongoTemplate.count(Query.query(Criteria.where("bookingId").is("loser")), SeatClaim.class));
+    }
+
+    private boolean claim(String bookingId, List<String> seats) {
+        try {
+            seatInventoryService.claimSeats(SHOWTIME_ID, bookingId, seats);
+            return true;
+        } catch (SeatUnavailableException e) {
+            return false;
+        }
+    }
+
+    // Starts every attempt at the same moment so the claims really race
+    private List<Boolean> runTogether(List<Callable<Boolean>> attempts) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (Callable<Boolean> attempt : attempts) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return attempt.call();
+                }));
+            }
+            start.countDown();
+            List<Boolean> results = new ArrayList<>();
+            for (Future<Boolean> future : futures) {
+                results.add(future.get(30, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
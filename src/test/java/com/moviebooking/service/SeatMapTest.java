@@ -0,0 +1,114 @@
+package com.moviebooking.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SeatMapTest {
+
+    @Test
+    void markAndClearKeepTheBookedCountAndAreIdempotent() {
+        SeatMap seatMap = new SeatMap(20);
+
+        seatMap.mark(3);
+        seatMap.mark(3);
+        seatMap.mark(17);
+        assertTrue(seatMap.isBooked(3));
+        assertEquals(2, seatMap.getBookedCount());
+
+        seatMap.clear(3);
+        seatMap.clear(3);
+        assertFalse(seatMap.isBooked(3));
+        assertEquals(1, seatMap.getBookedCount());
+    }
+
+    @Test
+    void bookedAndAvailableSeatsSplitTheMapAcrossWordBoundaries() {
+        SeatMap seatMap = new SeatMap(130);
+        seatMap.mark(0);
+        seatMap.mark(63);
+        seatMap.mark(64);
+        seatMap.mark(129);
+        long[] snapshot = seatMap.snapshot();
+
+        assertEquals(List.of("A1", "G4", "G5", "M10"), seatMap.bookedSeats(snapshot));
+        List<String> available = seatMap.availableSeats(snapshot);
+        assertEquals(126, available.size());
+        assertFalse(available.contains("G4"));
+        assertTrue(available.contains("M9"));
+        assertEquals(4, SeatMap.countBooked(snapshot));
+    }
+
+    @Test
+    void snapshotIsNotChangedByLaterMarks() {
+        SeatMap seatMap = new SeatMap(10);
+        long[] snapshot = seatMap.snapshot();
+
+        seatMap.mark(5);
+
+        assertEquals(0, SeatMap.countBooked(snapshot));
+        assertEquals(1, SeatMap.countBooked(seatMap.snapshot()));
+    }
+
+    @Test
+    void occupancyIsEncodedEightSeatsPerByteLittleEndian() {
+        SeatMap seatMap = new SeatMap(10);
+        seatMap.mark(0);
+        seatMap.mark(9);
+
+        // Seat 0 is bit 0 of the first byte, seat 9 bit 1 of the second
+        assertEquals("AQI=", seatMap.encodeOccupancy(seatMap.snapshot()));
+    }
+
+    @Test
+    void bestBlockSkipsBookedSeatsAndPrefersTheCentre() {
+        SeatMap seatMap = new SeatMap(10);
+        assertEquals(4, seatMap.findBestBlock(seatMap.snapshot(), 2, SeatBlockScorer.CENTER));
+
+        seatMap.mark(4);
+        assertEquals(5, seatMap.findBestBlock(seatMap.snapshot(), 2, SeatBlockScorer.CENTER));
+    }
+
+    @Test
+    void bestBlockFindsRowsThatSpanTwoWords() {
+        // Row G holds seats 60-69, split across the first and second long
+        SeatMap seatMap = new SeatMap(70);
+        for (int index = 0; index < 62; index++) {
+            seatMap.mark(index);
+        }
+
+        assertEquals(63, seatMap.findBestBlock(seatMap.snapshot(), 3, SeatBlockScorer.CENTER));
+    }
+
+    @Test
+    void bestBlockIsMinusOneWhenNoAdjacentSeatsAreFree() {
+        SeatMap seatMap = new SeatMap(10);
+        for (int index = 0; index < 10; index += 2) {
+            seatMap.mark(index);
+        }
+
+        assertEquals(-1, seatMap.findBestBlock(seatMap.snapshot(), 2, SeatBlockScorer.CENTER));
+    }
+
+    @Test
+    void everyMarkAndClearMovesTheVersion() {
+        SeatMap seatMap = new SeatMap(10);
+        long version = seatMap.getVersion();
+
+        seatMap.mark(1);
+        assertNotEquals(version, seatMap.getVersion());
+
+        version = seatMap.getVersion();
+        seatMap.mark(1);
+        assertNotEquals(version, seatMap.getVersion());
+
+        version = seatMap.getVersion();
+        seatMap.clear(1);
+        assertNotEquals(version, seatMap.getVersion());
+    }
+}
@@ -0,0 +1,46 @@
+package com.moviebooking.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SlidingWindowCounterTest {
+
+    // Ten one-second buckets, a ten second window
+    private final SlidingWindowCounter counter = new SlidingWindowCounter(10, 1000);
+
+    @Test
+    void countsEveryEventInsideTheWindow() {
+        assertEquals(1, counter.incrementAndSum(0));
+        assertEquals(2, counter.incrementAndSum(500));
+        assertEquals(3, counter.incrementAndSum(9999));
+    }
+
+    @Test
+    void eventsDropOutOnceTheirBucketLeavesTheWindow() {
+        counter.incrementAndSum(0);
+        counter.incrementAndSum(500);
+        counter.incrementAndSum(9999);
+
+        // The first bucket has left the window; only the event at 9999 is still counted
+        assertEquals(2, counter.incrementAndSum(10000));
+    }
+
+    @Test
+    void aReusedBucketStartsFromZero() {
+        counter.incrementAndSum(0);
+        counter.incrementAndSum(100);
+
+        assertEquals(1, counter.incrementAndSum(20000));
+    }
+
+    @Test
+    void isIdleOnlyWhenNothingWasRecordedSinceTheCutoff() {
+        counter.incrementAndSum(5000);
+
+        assertFalse(counter.isIdleSince(5000));
+        assertTrue(counter.isIdleSince(5001));
+    }
+}